@@ -0,0 +1,82 @@
+#!/usr/bin/env bash
+# Measures time from JVM launch to the first served HTTP request for the thin jar,
+# with and without the AOT/CDS fast-startup options, appends the results to a CSV
+# under the build directory (collect it as a CI artifact), and fails when the fast
+# start misses its budget or no longer beats the plain start by the required margin.
+# An optional reference CSV, such as the tracked benchmarks/startup-benchmark.csv,
+# is only read, to print the last recorded numbers next to this run.
+set -euo pipefail
+
+JAR="${1:?usage: startup-benchmark.sh <thin-jar> <results-csv> <budget-ms> <max-ratio-percent> [reference-csv]}"
+RESULTS="${2:?results csv required}"
+BUDGET_MS="${3:?budget in ms required}"
+MAX_RATIO="${4:?max fast/plain ratio in percent required}"
+REFERENCE="${5:-}"
+TARGET_DIR="$(cd "$(dirname "$JAR")" && pwd)"
+PORT="${BENCHMARK_PORT:-18080}"
+COMMIT="$(git -C "$TARGET_DIR" rev-parse --short HEAD 2>/dev/null || echo unknown)"
+HOST="$(hostname)"
+
+measure() {
+    local mode="$1"
+    shift
+
+    local start end status pid
+    start=$(date +%s%N)
+    (cd "$TARGET_DIR" && exec java "$@" \
+        -Dspring.profiles.active=faststart \
+        -Dtrackit.startup.skip-migrations=true \
+        -Dserver.port="$PORT" \
+        -jar "$(basename "$JAR")") > "$TARGET_DIR/startup-benchmark-$mode.log" 2>&1 &
+    pid=$!
+
+    status=000
+    for _ in $(seq 1 600); do
+        status=$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/api/habits" || true)
+        [ "$status" != "000" ] && break
+        sleep 0.05
+    done
+    end=$(date +%s%N)
+
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+
+    if [ "$status" = "000" ]; then
+        echo "startup-benchmark: $mode never served a request, see startup-benchmark-$mode.log" >&2
+        exit 1
+    fi
+
+    ELAPSED=$(( (end - start) / 1000000 ))
+    echo "$(date -u +%Y-%m-%dT%H:%M:%SZ),$COMMIT,$HOST,$mode,$ELAPSED" >> "$RESULTS"
+    echo "startup-benchmark: $mode served first request after ${ELAPSED} ms"
+}
+
+mkdir -p "$(dirname "$RESULTS")"
+[ -f "$RESULTS" ] || echo "timestamp,commit,host,mode,first_request_ms" > "$RESULTS"
+
+measure baseline
+PLAIN_MS=$ELAPSED
+if [ -f "$TARGET_DIR/app.jsa" ]; then
+    measure aot-cds -Dspring.aot.enabled=true -XX:SharedArchiveFile=app.jsa
+else
+    measure aot -Dspring.aot.enabled=true
+fi
+FAST_MS=$ELAPSED
+
+if [ -n "$REFERENCE" ] && [ -f "$REFERENCE" ]; then
+    for mode in baseline aot-cds aot; do
+        last=$(awk -F, -v mode="$mode" '$4 == mode { line = $0 } END { print line }' "$REFERENCE")
+        if [ -n "$last" ]; then
+            echo "startup-benchmark: reference $mode: $last"
+        fi
+    done
+fi
+
+if [ "$FAST_MS" -gt "$BUDGET_MS" ]; then
+    echo "startup-benchmark: fast start took ${FAST_MS} ms, over the ${BUDGET_MS} ms budget" >&2
+    exit 1
+fi
+if [ $(( FAST_MS * 100 )) -gt $(( PLAIN_MS * MAX_RATIO )) ]; then
+    echo "startup-benchmark: fast start took ${FAST_MS} ms, more than ${MAX_RATIO}% of the plain ${PLAIN_MS} ms" >&2
+    exit 1
+fi
@@ -0,0 +1,126 @@
+package com.trackit.achievement;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import com.trackit.model.AchievementBackfill;
+import com.trackit.model.User;
+import com.trackit.repository.AchievementBackfillRepository;
+import com.trackit.repository.UserRepository;
+import com.trackit.shard.ShardContext;
+import com.trackit.shard.ShardRouter;
+
+@Component
+public class AchievementBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AchievementBackfillService.class);
+
+    private final AchievementProperties properties;
+    private final AchievementBackfillRepository backfillRepository;
+    private final UserRepository userRepository;
+    private final AchievementEngine achievementEngine;
+    private final ShardRouter shardRouter;
+
+    public AchievementBackfillService(
+            AchievementProperties properties,
+            AchievementBackfillRepository backfillRepository,
+            UserRepository userRepository,
+            AchievementEngine achievementEngine,
+            ShardRouter shardRouter
+    ) {
+        this.properties = properties;
+        this.backfillRepository = backfillRepository;
+        this.userRepository = userRepository;
+        this.achievementEngine = achievementEngine;
+        this.shardRouter = shardRouter;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillNewRules() {
+        Set<String> completed = new HashSet<>();
+        backfillRepository.findAll().forEach(backfill -> completed.add(backfill.getAchievementId()));
+
+        List<String> pending = properties.getRules().stream()
+                .map(AchievementProperties.Rule::getId)
+                .filter(id -> !completed.contains(id))
+                .toList();
+        if (!pending.isEmpty()) {
+            CompletableFuture.runAsync(() -> backfill(pending));
+        }
+    }
+
+    private void backfill(List<String> ruleIds) {
+        logger.info("Backfilling achievements: {}", ruleIds);
+        long start = System.currentTimeMillis();
+        AtomicLong processed = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getBackfillParallelism());
+        try {
+            shardRouter.forEachShard(() -> backfillShard(executor, processed));
+            ruleIds.forEach(id -> backfillRepository.save(new AchievementBackfill(id, null)));
+            logger.info("Backfilled achievements {} for {} users in {} ms",
+                    ruleIds, processed.get(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Achievement backfill failed, it will be retried on next startup: ", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void backfillShard(ExecutorService executor, AtomicLong processed) {
+        Integer shard = ShardContext.current();
+        List<Future<?>> batches = new ArrayList<>();
+        PageRequest page = PageRequest.of(0, properties.getBackfillBatchSize(), Sort.by("id"));
+
+        long lastId = 0;
+        List<User> users;
+        do {
+            users = userRepository.findByIdGreaterThan(lastId, page);
+            if (users.isEmpty()) {
+                break;
+            }
+            List<Long> ids = users.stream().map(User::getId).toList();
+            lastId = ids.get(ids.size() - 1);
+            batches.add(executor.submit(() -> inShard(shard, () -> {
+                for (Long id : ids) {
+                    try {
+                        achievementEngine.backfill(id);
+                    } catch (Exception e) {
+                        logger.warn("Failed to backfill achievements for user ID: {}: {}", id, e.getMessage());
+                    }
+                    processed.incrementAndGet();
+                }
+            })));
+        } while (users.size() == properties.getBackfillBatchSize());
+
+        for (Future<?> batch : batches) {
+            try {
+                batch.get();
+            } catch (Exception e) {
+                throw new IllegalStateException("Achievement backfill batch failed", e);
+            }
+        }
+    }
+
+    private static void inShard(Integer shard, Runnable task) {
+        if (shard == null) {
+            task.run();
+        } else {
+            ShardContext.run(shard, task);
+        }
+    }
+}
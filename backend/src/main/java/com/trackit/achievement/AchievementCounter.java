@@ -0,0 +1,22 @@
+package com.trackit.achievement;
+
+import java.util.function.ToLongFunction;
+
+import com.trackit.model.AchievementProgress;
+
+public enum AchievementCounter {
+    HABITS_CREATED(AchievementProgress::getHabitsCreated),
+    COMPLETIONS(AchievementProgress::getCompletions),
+    CURRENT_STREAK(AchievementProgress::getCurrentStreak),
+    LONGEST_STREAK(AchievementProgress::getLongestStreak);
+
+    private final ToLongFunction<AchievementProgress> reader;
+
+    AchievementCounter(ToLongFunction<AchievementProgress> reader) {
+        this.reader = reader;
+    }
+
+    public long valueOf(AchievementProgress progress) {
+        return reader.applyAsLong(progress);
+    }
+}
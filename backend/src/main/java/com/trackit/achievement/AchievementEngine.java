@@ -0,0 +1,172 @@
+package com.trackit.achievement;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.trackit.archive.CompletionHistoryService;
+import com.trackit.archive.CompletionRecord;
+import com.trackit.model.AchievementProgress;
+import com.trackit.model.Habit;
+import com.trackit.model.User;
+import com.trackit.model.UserAchievement;
+import com.trackit.repository.AchievementProgressRepository;
+import com.trackit.repository.HabitRepository;
+import com.trackit.repository.UserAchievementRepository;
+import com.trackit.repository.UserRepository;
+
+@Component
+@EnableConfigurationProperties(AchievementProperties.class)
+public class AchievementEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(AchievementEngine.class);
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final AchievementProperties properties;
+    private final AchievementProgressRepository progressRepository;
+    private final UserAchievementRepository userAchievementRepository;
+    private final HabitRepository habitRepository;
+    private final UserRepository userRepository;
+    private final CompletionHistoryService completionHistoryService;
+    private final TransactionTemplate transactionTemplate;
+
+    public AchievementEngine(
+            AchievementProperties properties,
+            AchievementProgressRepository progressRepository,
+            UserAchievementRepository userAchievementRepository,
+            HabitRepository habitRepository,
+            UserRepository userRepository,
+            CompletionHistoryService completionHistoryService,
+            TransactionTemplate transactionTemplate
+    ) {
+        this.properties = properties;
+        this.progressRepository = progressRepository;
+        this.userAchievementRepository = userAchievementRepository;
+        this.habitRepository = habitRepository;
+        this.userRepository = userRepository;
+        this.completionHistoryService = completionHistoryService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Counters start at zero with the account, so habit events never race to create them.
+    @EventListener
+    public void onUserRegistered(UserRegisteredEvent event) {
+        try {
+            progressRepository.save(new AchievementProgress(event.user()));
+        } catch (Exception e) {
+            logger.error("Failed to create achievement counters for user: {}", event.user().getUsername(), e);
+        }
+    }
+
+    @EventListener
+    public void onHabitCreated(HabitCreatedEvent event) {
+        update(event.user(), AchievementProgress::recordHabitCreated, true);
+    }
+
+    @EventListener
+    public void onHabitCompleted(HabitCompletedEvent event) {
+        LocalDate date = event.completedAt().toLocalDate();
+        update(event.user(), progress -> progress.recordCompletion(date), true);
+    }
+
+    // Removing habits or completions can only lower counters, so nothing new can unlock.
+    @EventListener
+    public void onHabitUncompleted(HabitUncompletedEvent event) {
+        update(event.user(), AchievementProgress::removeCompletion, false);
+    }
+
+    @EventListener
+    public void onHabitDeleted(HabitDeletedEvent event) {
+        update(event.user(), AchievementProgress::removeHabit, false);
+    }
+
+    // Rebuilds the counters from the user's habits and completion history. Used by the backfill
+    // and for users whose counters are missing; habit events only apply increments.
+    public void backfill(Long userId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = userRepository.findById(userId).orElse(null);
+            if (user == null) {
+                return;
+            }
+            AchievementProgress progress = progressRepository.findByUser(user)
+                    .orElseGet(() -> progressRepository.save(recount(user, new AchievementProgress(user))));
+            unlockSatisfied(user, progress);
+        });
+    }
+
+    // Achievement failures are logged rather than failing the habit change that triggered them.
+    private void update(User user, Consumer<AchievementProgress> change, boolean unlock) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Optional<AchievementProgress> existing = progressRepository.findByUser(user);
+                // Accounts from before the counters existed are rebuilt once, which already includes this change.
+                AchievementProgress progress = existing.orElseGet(() -> recount(user, new AchievementProgress(user)));
+                existing.ifPresent(change);
+                progressRepository.save(progress);
+                if (unlock || existing.isEmpty()) {
+                    unlockSatisfied(user, progress);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("Failed to update achievements for user: {}", user.getUsername(), e);
+        }
+    }
+
+    private void unlockSatisfied(User user, AchievementProgress progress) {
+        Set<String> unlocked = new HashSet<>();
+        userAchievementRepository.findByUser(user).forEach(achievement -> unlocked.add(achievement.getAchievementId()));
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (AchievementProperties.Rule rule : properties.getRules()) {
+                if (!unlocked.contains(rule.getId()) && rule.isSatisfiedBy(progress, unlocked)) {
+                    userAchievementRepository.save(new UserAchievement(user, rule.getId()));
+                    unlocked.add(rule.getId());
+                    changed = true;
+                    logger.info("User: {} unlocked achievement: {}", user.getUsername(), rule.getId());
+                }
+            }
+        }
+    }
+
+    // Each habit counts at most once per day: recorded completions, plus completed habits from
+    // before completions were recorded.
+    private AchievementProgress recount(User user, AchievementProgress progress) {
+        List<Habit> habits = habitRepository.findByUser(user);
+        Map<Long, Set<LocalDate>> days = new HashMap<>();
+        try {
+            for (CompletionRecord record : completionHistoryService.history(user, HISTORY_START, LocalDateTime.now().plusDays(1))) {
+                days.computeIfAbsent(record.habitId(), id -> new HashSet<>()).add(record.completedAt().toLocalDate());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (Habit habit : habits) {
+            if (habit.isCompleted() && habit.getCompletedAt() != null) {
+                days.computeIfAbsent(habit.getId(), id -> new HashSet<>()).add(habit.getCompletedAt().toLocalDate());
+            }
+        }
+
+        List<LocalDate> completions = new ArrayList<>();
+        days.values().forEach(completions::addAll);
+        progress.recount(habits.size(), completions);
+        return progress;
+    }
+}
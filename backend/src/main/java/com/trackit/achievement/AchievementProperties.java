@@ -0,0 +1,45 @@
+package com.trackit.achievement;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.trackit.model.AchievementProgress;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "trackit.achievements")
+public class AchievementProperties {
+
+    private int backfillBatchSize = 500;
+
+    private int backfillParallelism = 4;
+
+    private List<Rule> rules = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Rule {
+        private String id;
+        private String name;
+        private String description;
+        private Map<AchievementCounter, Long> requires = new LinkedHashMap<>();
+        private List<String> requiresAchievements = new ArrayList<>();
+
+        public boolean isSatisfiedBy(AchievementProgress progress, Set<String> unlocked) {
+            for (Map.Entry<AchievementCounter, Long> requirement : requires.entrySet()) {
+                if (requirement.getKey().valueOf(progress) < requirement.getValue()) {
+                    return false;
+                }
+            }
+            return unlocked.containsAll(requiresAchievements);
+        }
+    }
+}
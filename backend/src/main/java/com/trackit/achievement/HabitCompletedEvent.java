@@ -0,0 +1,8 @@
+package com.trackit.achievement;
+
+import java.time.LocalDateTime;
+
+import com.trackit.model.User;
+
+public record HabitCompletedEvent(User user, Long habitId, LocalDateTime completedAt) {
+}
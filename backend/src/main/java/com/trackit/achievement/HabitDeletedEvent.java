@@ -0,0 +1,6 @@
+package com.trackit.achievement;
+
+import com.trackit.model.User;
+
+public record HabitDeletedEvent(User user, Long habitId) {
+}
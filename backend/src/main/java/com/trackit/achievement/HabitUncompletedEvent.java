@@ -0,0 +1,6 @@
+package com.trackit.achievement;
+
+import com.trackit.model.User;
+
+public record HabitUncompletedEvent(User user, Long habitId) {
+}
@@ -0,0 +1,42 @@
+package com.trackit.archive;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.trackit.shard.ShardDirectory;
+
+// Makes a single instance the archiver. The holder renews its lease on every run; another instance
+// takes over only once the lease has expired, so the lease must outlast the archive interval plus
+// any clock skew between instances. The lease row lives on the directory shard when sharding is
+// enabled and in the only database otherwise.
+public class ArchiveLease {
+
+    static final String NAME = "completion-archiver";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long leaseMs;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    public ArchiveLease(DataSource dataSource, ObjectProvider<ShardDirectory> directoryProvider, long leaseMs) {
+        ShardDirectory directory = directoryProvider.getIfAvailable();
+        this.jdbcTemplate = new JdbcTemplate(directory != null ? directory.dataSource() : dataSource);
+        this.leaseMs = leaseMs;
+    }
+
+    public boolean tryAcquire() {
+        long now = System.currentTimeMillis();
+        return jdbcTemplate.update(
+                "UPDATE leases SET owner = ?, expires_at = ? WHERE name = ? AND (owner IS NULL OR owner = ? OR expires_at < ?)",
+                owner, new Timestamp(now + leaseMs), NAME, owner, new Timestamp(now)) == 1;
+    }
+
+    public String owner() {
+        return owner;
+    }
+}
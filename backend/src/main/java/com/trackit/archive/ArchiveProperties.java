@@ -0,0 +1,27 @@
+package com.trackit.archive;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "trackit.archive")
+public class ArchiveProperties {
+
+    private boolean enabled = false;
+
+    // Absolute path of a volume shared by every instance; history reads cold segments from it too.
+    private String directory;
+
+    private int horizonDays = 180;
+
+    private int usersPerSegment = 1024;
+
+    private int batchSize = 5000;
+
+    private int compactionMinSegments = 4;
+
+    private long leaseMs = 7_200_000;
+}
@@ -0,0 +1,281 @@
+package com.trackit.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.trackit.shard.ShardIdRanges;
+
+// Cold completions live in immutable segment files, one directory per range of user ids under the
+// shard that allocated those ids. User ids are unique across shards and keep their value when a
+// bucket moves, so every shard archives into the same tree and a user's segments never change path.
+// The tree must be on a volume every instance mounts at the same absolute path; without a directory
+// there is no cold tier and history comes from the hot table alone.
+// A segment is a header followed by deflated blocks of fixed-size records sorted by user id;
+// each block header carries its user id bounds so reads can skip blocks without inflating them.
+@Component
+@EnableConfigurationProperties(ArchiveProperties.class)
+public class ColdSegmentStore {
+
+    private static final int MAGIC = 0x54524B43;
+    private static final int VERSION = 1;
+    private static final int RECORD_BYTES = 4 * Long.BYTES;
+    private static final int BLOCK_HEADER_BYTES = 2 * Long.BYTES + 2 * Integer.BYTES;
+    private static final int RECORDS_PER_BLOCK = 4096;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path root;
+    private final int usersPerSegment;
+    private final AtomicLong sequence = new AtomicLong();
+    // Readers hold the read lock while scanning; compaction takes the write lock to delete merged segments.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ColdSegmentStore(ArchiveProperties properties) {
+        String directory = properties.getDirectory();
+        if (directory == null || directory.isBlank()) {
+            if (properties.isEnabled()) {
+                throw new IllegalStateException("trackit.archive.directory is required when archiving is enabled");
+            }
+            this.root = null;
+        } else {
+            this.root = Paths.get(directory);
+            if (!root.isAbsolute()) {
+                throw new IllegalStateException("trackit.archive.directory must be an absolute path on a volume shared"
+                        + " by every instance, got: " + directory);
+            }
+        }
+        this.usersPerSegment = properties.getUsersPerSegment();
+    }
+
+    public void append(List<CompletionRecord> records) throws IOException {
+        Map<Path, List<CompletionRecord>> byRange = new TreeMap<>();
+        for (CompletionRecord record : records) {
+            byRange.computeIfAbsent(rangeDirectory(record.userId()), range -> new ArrayList<>()).add(record);
+        }
+        for (Map.Entry<Path, List<CompletionRecord>> range : byRange.entrySet()) {
+            writeSegment(range.getKey(), range.getValue());
+        }
+    }
+
+    public List<CompletionRecord> read(long userId, LocalDateTime from, LocalDateTime to) throws IOException {
+        if (root == null) {
+            return List.of();
+        }
+        Path directory = rangeDirectory(userId);
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        List<CompletionRecord> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Path segment : segments(directory)) {
+                scan(segment, userId, record -> {
+                    if (!record.completedAt().isBefore(from) && !record.completedAt().isAfter(to)) {
+                        result.add(record);
+                    }
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Merges every range that has accumulated at least minSegments segments into a single one.
+    public int compact(int minSegments) throws IOException {
+        if (root == null || !Files.isDirectory(root)) {
+            return 0;
+        }
+
+        int compacted = 0;
+        for (Path directory : rangeDirectories()) {
+            List<Path> segments = segments(directory);
+            if (segments.size() < Math.max(minSegments, 2)) {
+                continue;
+            }
+
+            Map<Long, CompletionRecord> merged = new LinkedHashMap<>();
+            for (Path segment : segments) {
+                scan(segment, -1, record -> merged.put(record.id(), record));
+            }
+            writeSegment(directory, new ArrayList<>(merged.values()));
+
+            lock.writeLock().lock();
+            try {
+                for (Path segment : segments) {
+                    Files.deleteIfExists(segment);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            compacted++;
+        }
+        return compacted;
+    }
+
+    private void writeSegment(Path directory, List<CompletionRecord> records) throws IOException {
+        records.sort(Comparator.comparingLong(CompletionRecord::userId)
+                .thenComparing(CompletionRecord::completedAt));
+        Files.createDirectories(directory);
+
+        String name = "seg-" + System.currentTimeMillis() + "-" + sequence.incrementAndGet() + SEGMENT_SUFFIX;
+        Path temporary = directory.resolve(name + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.allocate(2 * Integer.BYTES).putInt(MAGIC).putInt(VERSION).flip());
+
+            for (int start = 0; start < records.size(); start += RECORDS_PER_BLOCK) {
+                List<CompletionRecord> block = records.subList(start, Math.min(start + RECORDS_PER_BLOCK, records.size()));
+                ByteBuffer raw = ByteBuffer.allocate(block.size() * RECORD_BYTES);
+                for (CompletionRecord record : block) {
+                    raw.putLong(record.id())
+                            .putLong(record.userId())
+                            .putLong(record.habitId())
+                            .putLong(record.completedAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+                }
+                byte[] compressed = deflate(raw.array());
+
+                writeFully(channel, ByteBuffer.allocate(BLOCK_HEADER_BYTES)
+                        .putLong(block.get(0).userId())
+                        .putLong(block.get(block.size() - 1).userId())
+                        .putInt(block.size())
+                        .putInt(compressed.length)
+                        .flip());
+                writeFully(channel, ByteBuffer.wrap(compressed));
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void scan(Path segment, long userId, Consumer<CompletionRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a completion segment: " + segment);
+            }
+
+            while (buffer.remaining() >= BLOCK_HEADER_BYTES) {
+                long minUserId = buffer.getLong();
+                long maxUserId = buffer.getLong();
+                int count = buffer.getInt();
+                int compressedLength = buffer.getInt();
+                if (userId >= 0 && (userId < minUserId || userId > maxUserId)) {
+                    buffer.position(buffer.position() + compressedLength);
+                    continue;
+                }
+
+                byte[] compressed = new byte[compressedLength];
+                buffer.get(compressed);
+                ByteBuffer records = ByteBuffer.wrap(inflate(compressed, count * RECORD_BYTES));
+                for (int i = 0; i < count; i++) {
+                    long id = records.getLong();
+                    long recordUserId = records.getLong();
+                    long habitId = records.getLong();
+                    long completedAt = records.getLong();
+                    if (userId < 0 || recordUserId == userId) {
+                        consumer.accept(new CompletionRecord(id, recordUserId, habitId,
+                                LocalDateTime.ofInstant(Instant.ofEpochMilli(completedAt), ZoneOffset.UTC)));
+                    }
+                }
+            }
+        }
+    }
+
+    private Path rangeDirectory(long userId) {
+        return root.resolve("shard-" + userId / ShardIdRanges.RANGE_SIZE)
+                .resolve("range-" + userId % ShardIdRanges.RANGE_SIZE / usersPerSegment);
+    }
+
+    private List<Path> rangeDirectories() throws IOException {
+        List<Path> ranges = new ArrayList<>();
+        for (Path shard : directories(root)) {
+            ranges.addAll(directories(shard));
+        }
+        return ranges;
+    }
+
+    private static List<Path> directories(Path parent) throws IOException {
+        try (Stream<Path> directories = Files.list(parent)) {
+            return directories.filter(Files::isDirectory).sorted().toList();
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 2);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] output = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int inflated = inflater.inflate(output, read, length - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += inflated;
+            }
+            if (read != length) {
+                throw new IOException("Corrupt completion segment block");
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt completion segment block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.trackit.archive;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.trackit.model.HabitCompletion;
+import com.trackit.repository.HabitCompletionRepository;
+import com.trackit.shard.ShardDirectory;
+import com.trackit.shard.ShardRouter;
+
+@Component
+@ConditionalOnProperty(name = "trackit.archive.enabled", havingValue = "true")
+public class CompletionArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompletionArchiver.class);
+
+    private final ArchiveProperties properties;
+    private final HabitCompletionRepository completionRepository;
+    private final ColdSegmentStore coldSegmentStore;
+    private final ShardRouter shardRouter;
+    private final ArchiveLease lease;
+
+    public CompletionArchiver(
+            ArchiveProperties properties,
+            HabitCompletionRepository completionRepository,
+            ColdSegmentStore coldSegmentStore,
+            ShardRouter shardRouter,
+            DataSource dataSource,
+            ObjectProvider<ShardDirectory> directoryProvider
+    ) {
+        this.properties = properties;
+        this.completionRepository = completionRepository;
+        this.coldSegmentStore = coldSegmentStore;
+        this.shardRouter = shardRouter;
+        this.lease = new ArchiveLease(dataSource, directoryProvider, properties.getLeaseMs());
+        logger.info("Completion archiver {} archives into {} while it holds the lease", lease.owner(), properties.getDirectory());
+    }
+
+    @Scheduled(fixedDelayString = "${trackit.archive.interval-ms:3600000}",
+            initialDelayString = "${trackit.archive.initial-delay-ms:60000}")
+    public void archive() {
+        if (!lease.tryAcquire()) {
+            logger.debug("Skipping archive run, another instance holds the archive lease");
+            return;
+        }
+        shardRouter.forEachShard(this::archiveShard);
+    }
+
+    @Scheduled(fixedDelayString = "${trackit.archive.compaction-interval-ms:21600000}",
+            initialDelayString = "${trackit.archive.compaction-initial-delay-ms:300000}")
+    public void compact() {
+        try {
+            if (!lease.tryAcquire()) {
+                logger.debug("Skipping compaction, another instance holds the archive lease");
+                return;
+            }
+            long start = System.currentTimeMillis();
+            int compacted = coldSegmentStore.compact(properties.getCompactionMinSegments());
+            if (compacted > 0) {
+                logger.info("Compacted {} cold segment ranges in {} ms", compacted, System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            logger.error("Cold segment compaction failed: ", e);
+        }
+    }
+
+    // Segments are written and synced before rows are deleted, so a failed run never loses completions.
+    private void archiveShard() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(properties.getHorizonDays());
+        PageRequest batch = PageRequest.of(0, properties.getBatchSize(), Sort.by("id"));
+        long start = System.currentTimeMillis();
+        long hotBefore = completionRepository.count();
+        long archived = 0;
+
+        try {
+            List<HabitCompletion> completions;
+            do {
+                completions = completionRepository.findByCompletedAtBefore(cutoff, batch);
+                if (completions.isEmpty()) {
+                    break;
+                }
+                coldSegmentStore.append(completions.stream()
+                        .map(completion -> new CompletionRecord(
+                                completion.getId(),
+                                completion.getUser().getId(),
+                                completion.getHabitId(),
+                                completion.getCompletedAt()))
+                        .toList());
+                completionRepository.deleteAllByIdInBatch(completions.stream().map(HabitCompletion::getId).toList());
+                archived += completions.size();
+            } while (completions.size() == properties.getBatchSize());
+        } catch (Exception e) {
+            logger.error("Completion archival failed after {} rows: ", archived, e);
+        }
+
+        if (archived > 0) {
+            logger.info("Archived {} completions older than {} in {} ms, hot table went from {} to {} rows",
+                    archived, cutoff, System.currentTimeMillis() - start, hotBefore, hotBefore - archived);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.trackit.archive;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.trackit.model.HabitCompletion;
+import com.trackit.model.User;
+import com.trackit.repository.HabitCompletionRepository;
+
+@Service
+public class CompletionHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompletionHistoryService.class);
+    private final HabitCompletionRepository completionRepository;
+    private final ColdSegmentStore coldSegmentStore;
+
+    public CompletionHistoryService(HabitCompletionRepository completionRepository, ColdSegmentStore coldSegmentStore) {
+        this.completionRepository = completionRepository;
+        this.coldSegmentStore = coldSegmentStore;
+    }
+
+    // A habit completes at most once per day, so completing it again on a day that already has a
+    // completion records nothing. Returns whether a completion was recorded.
+    public boolean record(User user, Long habitId, LocalDateTime completedAt) {
+        LocalDateTime day = completedAt.toLocalDate().atStartOfDay();
+        try {
+            if (completionRepository.existsByUserAndHabitIdAndCompletedAtBetween(user, habitId, day, endOf(day))) {
+                return false;
+            }
+            completionRepository.save(new HabitCompletion(user, habitId, completedAt));
+            return true;
+        } catch (Exception e) {
+            logger.error("Failed to record completion of habit ID: {} for user: {}", habitId, user.getUsername(), e);
+            return false;
+        }
+    }
+
+    // Unchecking a habit takes back that day's completion. Returns whether one was removed; completions
+    // that were already archived, or made before completions were recorded, stay in history.
+    public boolean undo(User user, Long habitId, LocalDateTime completedAt) {
+        LocalDateTime day = completedAt.toLocalDate().atStartOfDay();
+        try {
+            return completionRepository.deleteByUserAndHabitIdAndCompletedAtBetween(user, habitId, day, endOf(day)) > 0;
+        } catch (Exception e) {
+            logger.error("Failed to remove completion of habit ID: {} for user: {}", habitId, user.getUsername(), e);
+            return false;
+        }
+    }
+
+    // Rows can briefly exist both hot and cold while an archive run is in progress, so merge by id.
+    public List<CompletionRecord> history(User user, LocalDateTime from, LocalDateTime to) throws IOException {
+        long start = System.nanoTime();
+
+        Map<Long, CompletionRecord> merged = new LinkedHashMap<>();
+        List<HabitCompletion> hot = completionRepository.findByUserAndCompletedAtBetween(user, from, to);
+        for (HabitCompletion completion : hot) {
+            merged.put(completion.getId(), new CompletionRecord(
+                    completion.getId(), user.getId(), completion.getHabitId(), completion.getCompletedAt()));
+        }
+        List<CompletionRecord> cold = coldSegmentStore.read(user.getId(), from, to);
+        for (CompletionRecord record : cold) {
+            merged.putIfAbsent(record.id(), record);
+        }
+
+        List<CompletionRecord> history = new ArrayList<>(merged.values());
+        history.sort(Comparator.comparing(CompletionRecord::completedAt).reversed());
+        logger.debug("Loaded history for user: {} with {} hot and {} cold completions in {} us",
+                user.getUsername(), hot.size(), cold.size(), (System.nanoTime() - start) / 1000);
+        return history;
+    }
+
+    private static LocalDateTime endOf(LocalDateTime day) {
+        return day.plusDays(1).minusNanos(1000);
+    }
+}
@@ -0,0 +1,6 @@
+package com.trackit.archive;
+
+import java.time.LocalDateTime;
+
+public record CompletionRecord(long id, long userId, long habitId, LocalDateTime completedAt) {
+}
@@ -0,0 +1,116 @@
+package com.trackit.availability;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.trackit.repository.UserRepository;
+import com.trackit.shard.ShardDirectory;
+import com.trackit.shard.ShardRouter;
+
+// Bloom filters over every taken username and email. A miss proves the value is free without a
+// query; a hit may be a false positive and falls through to the database: the shard directory when
+// sharding is enabled, since it is the only place that sees every shard, otherwise the users table.
+// Values are lowercased because the unique indexes compare case-insensitively.
+@Component
+public class AvailabilityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+    private final ObjectProvider<ShardDirectory> directoryProvider;
+    private final DataSource dataSource;
+    private final BloomFilter usernames;
+    private final BloomFilter emails;
+    private volatile boolean ready;
+
+    public AvailabilityIndex(
+            UserRepository userRepository,
+            ShardRouter shardRouter,
+            ObjectProvider<ShardDirectory> directoryProvider,
+            DataSource dataSource,
+            @Value("${trackit.availability.expected-users:1000000}") long expectedUsers,
+            @Value("${trackit.availability.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        this.userRepository = userRepository;
+        this.shardRouter = shardRouter;
+        this.directoryProvider = directoryProvider;
+        this.dataSource = dataSource;
+        this.usernames = new BloomFilter(expectedUsers, falsePositiveRate);
+        this.emails = new BloomFilter(expectedUsers, falsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        CompletableFuture.runAsync(() -> {
+            long start = System.currentTimeMillis();
+            AtomicLong loaded = new AtomicLong();
+            try {
+                shardRouter.forEachShard(() -> streamingJdbcTemplate().query("SELECT username, email FROM users", rs -> {
+                    usernames.add(normalize(rs.getString("username")));
+                    emails.add(normalize(rs.getString("email")));
+                    loaded.incrementAndGet();
+                }));
+                ready = true;
+                logger.info("Availability index warmed with {} users in {} ms",
+                        loaded.get(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("Failed to warm availability index, falling back to database checks: ", e);
+            }
+        });
+    }
+
+    public boolean isUsernameAvailable(String username) {
+        if (ready && !usernames.mightContain(normalize(username))) {
+            return true;
+        }
+        ShardDirectory directory = directoryProvider.getIfAvailable();
+        return directory != null ? !directory.usernameTaken(username) : !userRepository.existsByUsername(username);
+    }
+
+    public boolean isEmailAvailable(String email) {
+        if (ready && !emails.mightContain(normalize(email))) {
+            return true;
+        }
+        ShardDirectory directory = directoryProvider.getIfAvailable();
+        return directory != null ? !directory.emailTaken(email) : !userRepository.existsByEmail(email);
+    }
+
+    public void recordRegistration(String username, String email) {
+        usernames.add(normalize(username));
+        emails.add(normalize(email));
+    }
+
+    // Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the whole table;
+    // other drivers reject it and get their default fetch size.
+    private JdbcTemplate streamingJdbcTemplate() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        try (Connection connection = dataSource.getConnection()) {
+            if (DatabaseDriver.fromJdbcUrl(connection.getMetaData().getURL()) == DatabaseDriver.MYSQL) {
+                jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not inspect the database driver", e);
+        }
+        return jdbcTemplate;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
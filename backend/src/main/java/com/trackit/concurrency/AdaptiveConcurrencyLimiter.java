@@ -0,0 +1,94 @@
+package com.trackit.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Gradient limiter: the limit follows the ratio of the no-load latency (the minimum seen in the
+// current window) to recent latency, so it shrinks as soon as requests queue behind a slow
+// dependency and grows by up to sqrt(limit) per sample while latency stays near the baseline.
+// The baseline is re-probed every window so a lasting slowdown becomes the new normal instead
+// of pinning the limit at its minimum. Failed requests back off multiplicatively, AIMD style.
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final int BASELINE_WINDOW = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double shortRttNanos;
+    private double baselineRttNanos;
+    private int samples;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties.Limits limits, ConcurrencyLimitProperties properties) {
+        this.minLimit = limits.getMin();
+        this.maxLimit = limits.getMax();
+        this.limit = limits.getInitial();
+        this.tolerance = properties.getTolerance();
+        this.smoothing = properties.getSmoothing();
+        this.backoffRatio = properties.getBackoffRatio();
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long rttNanos, boolean failed) {
+        int inFlightAtRelease = inFlight.getAndDecrement();
+        update(rttNanos, inFlightAtRelease, failed);
+    }
+
+    // For requests whose latency says nothing about the dependency, such as rejected ones.
+    public void releaseWithoutSample() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtRelease, boolean failed) {
+        if (failed) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            return;
+        }
+
+        if (baselineRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            baselineRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) / SHORT_WINDOW;
+        baselineRttNanos = Math.min(baselineRttNanos, rttNanos);
+        if (++samples >= BASELINE_WINDOW) {
+            samples = 0;
+            baselineRttNanos = shortRttNanos;
+        }
+
+        // Not enough load to tell whether a higher limit would help.
+        if (inFlightAtRelease < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineRttNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+}
@@ -0,0 +1,129 @@
+package com.trackit.concurrency;
+
+import java.io.IOException;
+import java.sql.SQLTransientException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    // Set by later filters and controllers that turn a request away on purpose, e.g. during a shard
+    // move, so the rejection is neither a latency sample nor a failure.
+    public static final String NOT_SAMPLED_ATTRIBUTE = ConcurrencyLimitFilter.class.getName() + ".NOT_SAMPLED";
+
+    // Set through recordFailure by controllers that turn an exception into a response, so the filter can
+    // still tell whether it came from an overloaded dependency.
+    public static final String FAILURE_ATTRIBUTE = ConcurrencyLimitFilter.class.getName() + ".FAILURE";
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+    private final Map<EndpointClass, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> shed = new EnumMap<>(EndpointClass.class);
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            if (endpointClass == EndpointClass.PRIORITY) {
+                continue;
+            }
+            AdaptiveConcurrencyLimiter limiter =
+                    new AdaptiveConcurrencyLimiter(properties.limitsFor(endpointClass), properties);
+            String tag = endpointClass.name().toLowerCase(Locale.ROOT);
+            limiters.put(endpointClass, limiter);
+            shed.put(endpointClass, Counter.builder("trackit.concurrency.shed")
+                    .tag("class", tag)
+                    .register(meterRegistry));
+            Gauge.builder("trackit.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("trackit.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .tag("class", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        EndpointClass endpointClass = EndpointClass.of(request);
+        AdaptiveConcurrencyLimiter limiter = limiters.get(endpointClass);
+        if (limiter == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (!limiter.tryAcquire()) {
+            shed.get(endpointClass).increment();
+            logger.debug("Shedding {} request {} {} at limit {}",
+                    endpointClass, request.getMethod(), request.getRequestURI(), limiter.getLimit());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.getWriter().write("Server is busy, please retry");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (failure == null) {
+                failure = (Throwable) request.getAttribute(FAILURE_ATTRIBUTE);
+            }
+            int status = response.getStatus();
+            // Only a dependency that is timing out or out of connections means too much concurrency. Other
+            // errors (bugs, missing entities, bad input) and 4xx rejections like 401, 403 and 429 are
+            // usually fast and never reach the database, so they are neither failures nor latency samples.
+            boolean overloaded = failure != null
+                    ? isOverload(failure)
+                    : status == HttpServletResponse.SC_SERVICE_UNAVAILABLE || status == HttpServletResponse.SC_GATEWAY_TIMEOUT;
+            if (request.getAttribute(NOT_SAMPLED_ATTRIBUTE) != null) {
+                limiter.releaseWithoutSample();
+            } else if (overloaded) {
+                limiter.release(System.nanoTime() - start, true);
+            } else if (failure != null || status >= HttpServletResponse.SC_BAD_REQUEST) {
+                limiter.releaseWithoutSample();
+            } else {
+                limiter.release(System.nanoTime() - start, false);
+            }
+        }
+    }
+
+    public static void recordFailure(HttpServletRequest request, Throwable failure) {
+        request.setAttribute(FAILURE_ATTRIBUTE, failure);
+    }
+
+    static boolean isOverload(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
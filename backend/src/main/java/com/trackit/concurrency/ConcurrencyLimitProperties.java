@@ -0,0 +1,38 @@
+package com.trackit.concurrency;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "trackit.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    // How much latency above the no-load baseline is tolerated before the limit shrinks.
+    private double tolerance = 1.5;
+
+    private double smoothing = 0.2;
+
+    private double backoffRatio = 0.9;
+
+    private Map<EndpointClass, Limits> limits = new EnumMap<>(EndpointClass.class);
+
+    public Limits limitsFor(EndpointClass endpointClass) {
+        return limits.getOrDefault(endpointClass, new Limits());
+    }
+
+    @Getter
+    @Setter
+    public static class Limits {
+        private int initial = 20;
+        private int min = 4;
+        private int max = 200;
+    }
+}
@@ -0,0 +1,25 @@
+package com.trackit.concurrency;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+public enum EndpointClass {
+    READ,
+    WRITE,
+    AUTH,
+    PRIORITY;
+
+    public static EndpointClass of(HttpServletRequest request) {
+        String path = request.getServletPath();
+        String method = request.getMethod();
+        if (path.startsWith("/actuator/health") || "OPTIONS".equals(method)) {
+            return PRIORITY;
+        }
+        if (path.startsWith("/api/auth/")) {
+            return AUTH;
+        }
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            return READ;
+        }
+        return WRITE;
+    }
+}
@@ -0,0 +1,110 @@
+package com.trackit.config;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.trackit.shard.ShardIdRanges;
+import com.trackit.shard.ShardRoutingDataSource;
+
+@Configuration
+public class MigrationConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrationConfig.class);
+
+    // A table each migration creates. Databases that were kept up to date by ddl-auto=update
+    // have no migration history and are baselined at the newest migration whose table exists.
+    private static final Map<String, String> MIGRATION_TABLES = new LinkedHashMap<>();
+
+    static {
+        MIGRATION_TABLES.put("1", "users");
+        MIGRATION_TABLES.put("2", "achievement_progress");
+        MIGRATION_TABLES.put("3", "habit_completions");
+        MIGRATION_TABLES.put("4", "shard_buckets");
+        MIGRATION_TABLES.put("5", "leases");
+    }
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(
+            ObjectProvider<ShardRoutingDataSource> shards,
+            Environment environment
+    ) {
+        return flyway -> {
+            if (environment.getProperty("trackit.startup.skip-migrations", Boolean.class, false)) {
+                logger.info("Skipping database migrations");
+                return;
+            }
+
+            ShardRoutingDataSource routingDataSource = shards.getIfAvailable();
+            if (routingDataSource == null) {
+                migrate(flyway, flyway.getConfiguration().getDataSource());
+                return;
+            }
+
+            for (int shard = 0; shard < routingDataSource.shardCount(); shard++) {
+                logger.info("Migrating shard {}", shard);
+                migrate(flyway, routingDataSource.shard(shard));
+            }
+            ShardIdRanges.reserve(routingDataSource);
+        };
+    }
+
+    private void migrate(Flyway flyway, DataSource dataSource) {
+        String baseline = baselineVersion(dataSource, flyway.getConfiguration().getTable());
+        Flyway.configure()
+                .configuration(flyway.getConfiguration())
+                .dataSource(dataSource)
+                .baselineVersion(baseline)
+                .load()
+                .migrate();
+    }
+
+    private String baselineVersion(DataSource dataSource, String historyTable) {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (tableExists(connection, metaData, historyTable)) {
+                return "1";
+            }
+
+            String baseline = "1";
+            for (Map.Entry<String, String> migration : MIGRATION_TABLES.entrySet()) {
+                if (!tableExists(connection, metaData, migration.getValue())) {
+                    break;
+                }
+                baseline = migration.getKey();
+            }
+            if (!"1".equals(baseline)) {
+                logger.info("Existing schema without migration history, baselining at version {}", baseline);
+            }
+            return baseline;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not inspect schema before migrating", e);
+        }
+    }
+
+    private boolean tableExists(Connection connection, DatabaseMetaData metaData, String table) throws SQLException {
+        for (String name : new String[] {table, table.toUpperCase(Locale.ROOT)}) {
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, name, new String[] {"TABLE"})) {
+                if (tables.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package com.trackit.controller;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.trackit.achievement.AchievementProperties;
+import com.trackit.model.User;
+import com.trackit.repository.UserAchievementRepository;
+import com.trackit.repository.UserRepository;
+
+@RestController
+@RequestMapping("/api/achievements")
+public class AchievementController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AchievementController.class);
+    private final AchievementProperties achievementProperties;
+    private final UserAchievementRepository userAchievementRepository;
+    private final UserRepository userRepository;
+
+    public AchievementController(
+            AchievementProperties achievementProperties,
+            UserAchievementRepository userAchievementRepository,
+            UserRepository userRepository
+    ) {
+        this.achievementProperties = achievementProperties;
+        this.userAchievementRepository = userAchievementRepository;
+        this.userRepository = userRepository;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> getUserAchievements() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        logger.info("Getting achievements for user: {}", username);
+
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> {
+                    logger.error("User not found: {}", username);
+                    return new RuntimeException("User not found");
+                });
+
+        Map<String, LocalDateTime> unlocked = new HashMap<>();
+        userAchievementRepository.findByUser(user)
+                .forEach(achievement -> unlocked.put(achievement.getAchievementId(), achievement.getUnlockedAt()));
+
+        List<Map<String, Object>> achievements = new ArrayList<>();
+        for (AchievementProperties.Rule rule : achievementProperties.getRules()) {
+            Map<String, Object> achievement = new LinkedHashMap<>();
+            achievement.put("id", rule.getId());
+            achievement.put("name", rule.getName());
+            achievement.put("description", rule.getDescription());
+            achievement.put("unlocked", unlocked.containsKey(rule.getId()));
+            achievement.put("unlockedAt", unlocked.get(rule.getId()));
+            achievements.add(achievement);
+        }
+
+        return ResponseEntity.ok(achievements);
+    }
+}
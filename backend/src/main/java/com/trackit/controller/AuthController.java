@@ -1,10 +1,15 @@
 package com.trackit.controller;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -12,14 +17,23 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.trackit.achievement.UserRegisteredEvent;
+import com.trackit.availability.AvailabilityIndex;
+import com.trackit.concurrency.ConcurrencyLimitFilter;
 import com.trackit.model.User;
 import com.trackit.repository.UserRepository;
 import com.trackit.security.JwtUtil;
+import com.trackit.shard.ShardMovingException;
+import com.trackit.shard.ShardRouter;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -32,23 +46,32 @@ public class AuthController {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final ShardRouter shardRouter;
+    private final AvailabilityIndex availabilityIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     public AuthController(
             AuthenticationManager authenticationManager,
             UserRepository userRepository,
             PasswordEncoder passwordEncoder,
             JwtUtil jwtUtil,
-            UserDetailsService userDetailsService
+            UserDetailsService userDetailsService,
+            ShardRouter shardRouter,
+            AvailabilityIndex availabilityIndex,
+            ApplicationEventPublisher eventPublisher
     ) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.shardRouter = shardRouter;
+        this.availabilityIndex = availabilityIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> register(@RequestBody Map<String, String> request, HttpServletRequest servletRequest) {
         try {
             logger.info("Received registration request for username: {}", request.get("username"));
             
@@ -88,37 +111,69 @@ public class AuthController {
                 return ResponseEntity.badRequest().body("Invalid email format");
             }
 
-           
-            if (userRepository.existsByUsername(username)) {
-                logger.warn("Registration failed: Username already exists");
-                return ResponseEntity.badRequest().body("Username already exists");
-            }
-
-            
-            if (userRepository.existsByEmail(email)) {
-                logger.warn("Registration failed: Email already exists");
-                return ResponseEntity.badRequest().body("Email already exists");
-            }
-
-            
+            // The unique constraints decide whether the name or email is taken: the shard directory's
+            // when sharding is enabled, otherwise those on users.
             User user = new User();
             user.setUsername(username);
             String encodedPassword = passwordEncoder.encode(password);
             logger.info("Password encoded successfully for user: {}", username);
             user.setPassword(encodedPassword);
             user.setEmail(email);
-            userRepository.save(user);
+            try {
+                shardRouter.reserve(username, email);
+                try {
+                    userRepository.save(user);
+                } catch (RuntimeException e) {
+                    shardRouter.release(username);
+                    throw e;
+                }
+            } catch (DataIntegrityViolationException e) {
+                if (isEmailConflict(e, username, email)) {
+                    logger.warn("Registration failed: Email already exists");
+                    return ResponseEntity.badRequest().body("Email already exists");
+                }
+                logger.warn("Registration failed: Username already exists");
+                return ResponseEntity.badRequest().body("Username already exists");
+            } catch (ShardMovingException e) {
+                logger.warn("Registration failed: {}", e.getMessage());
+                servletRequest.setAttribute(ConcurrencyLimitFilter.NOT_SAMPLED_ATTRIBUTE, true);
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header("Retry-After", "1")
+                        .body("Registration is briefly unavailable, please try again");
+            }
+            availabilityIndex.recordRegistration(username, email);
+            eventPublisher.publishEvent(new UserRegisteredEvent(user));
             
             logger.info("User registered successfully: {}", username);
             return ResponseEntity.ok("User registered successfully");
         } catch (Exception e) {
             logger.error("Registration error: ", e);
-            return ResponseEntity.badRequest().body("An error occurred during registration: " + e.getMessage());
+            ConcurrencyLimitFilter.recordFailure(servletRequest, e);
+            return ResponseEntity.internalServerError().body("An error occurred during registration: " + e.getMessage());
         }
     }
 
+    @GetMapping("/availability")
+    public ResponseEntity<?> availability(
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String email
+    ) {
+        if ((username == null || username.isBlank()) && (email == null || email.isBlank())) {
+            return ResponseEntity.badRequest().body("Username or email is required");
+        }
+
+        Map<String, Boolean> response = new HashMap<>();
+        if (username != null && !username.isBlank()) {
+            response.put("username", availabilityIndex.isUsernameAvailable(username));
+        }
+        if (email != null && !email.isBlank()) {
+            response.put("email", availabilityIndex.isEmailAvailable(email));
+        }
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> login(@RequestBody Map<String, String> request, HttpServletRequest servletRequest) {
         try {
             String username = request.get("username");
             String password = request.get("password");
@@ -130,7 +185,7 @@ public class AuthController {
                 return ResponseEntity.badRequest().body("Username and password are required");
             }
 
-        
+            shardRouter.bindExisting(username);
             User user = userRepository.findByUsername(username).orElse(null);
             if (user == null) {
                 logger.warn("Login failed: User not found - {}", username);
@@ -157,6 +212,7 @@ public class AuthController {
                 logger.info("User authenticated successfully: {}", username);
             } catch (Exception e) {
                 logger.warn("Login failed: Invalid credentials for user: {}. Error: {}", username, e.getMessage());
+                ConcurrencyLimitFilter.recordFailure(servletRequest, e);
                 return ResponseEntity.badRequest().body("Invalid username or password");
             }
 
@@ -171,7 +227,32 @@ public class AuthController {
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             logger.error("Login error: ", e);
-            return ResponseEntity.badRequest().body("An error occurred during login: " + e.getMessage());
+            ConcurrencyLimitFilter.recordFailure(servletRequest, e);
+            return ResponseEntity.internalServerError().body("An error occurred during login: " + e.getMessage());
+        }
+    }
+
+    // Hibernate reports the violated constraint's name; the directory's plain JDBC insert only has the
+    // driver message, which names the constraint as well. Schemas created by ddl-auto before the
+    // migrations have Hibernate's generated names instead, so any other name is settled by checking
+    // which value is already taken.
+    private boolean isEmailConflict(DataIntegrityViolationException e, String username, String email) {
+        String constraint = e.getMostSpecificCause().getMessage();
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                constraint = violation.getConstraintName();
+                break;
+            }
+        }
+        String name = String.valueOf(constraint).toLowerCase(Locale.ROOT);
+        if (name.contains("uk_users_email") || name.contains("uk_shard_users_email")) {
+            return true;
+        }
+        if (name.contains("uk_users_username")) {
+            return false;
         }
+        boolean usernameTaken = shardRouter.usernameTaken(username) || userRepository.existsByUsername(username);
+        boolean emailTaken = shardRouter.emailTaken(email) || userRepository.existsByEmail(email);
+        return emailTaken && !usernameTaken;
     }
 } 
\ No newline at end of file
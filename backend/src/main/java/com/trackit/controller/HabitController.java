@@ -6,6 +6,8 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,12 +19,22 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.trackit.achievement.HabitCompletedEvent;
+import com.trackit.achievement.HabitCreatedEvent;
+import com.trackit.achievement.HabitDeletedEvent;
+import com.trackit.achievement.HabitUncompletedEvent;
+import com.trackit.archive.CompletionHistoryService;
+import com.trackit.concurrency.ConcurrencyLimitFilter;
 import com.trackit.model.Habit;
 import com.trackit.model.User;
 import com.trackit.repository.HabitRepository;
 import com.trackit.repository.UserRepository;
+import com.trackit.search.HabitSearchIndex;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/habits")
@@ -31,10 +43,22 @@ public class HabitController {
     private static final Logger logger = LoggerFactory.getLogger(HabitController.class);
     private final HabitRepository habitRepository;
     private final UserRepository userRepository;
+    private final HabitSearchIndex habitSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CompletionHistoryService completionHistoryService;
 
-    public HabitController(HabitRepository habitRepository, UserRepository userRepository) {
+    public HabitController(
+            HabitRepository habitRepository,
+            UserRepository userRepository,
+            HabitSearchIndex habitSearchIndex,
+            ApplicationEventPublisher eventPublisher,
+            CompletionHistoryService completionHistoryService
+    ) {
         this.habitRepository = habitRepository;
         this.userRepository = userRepository;
+        this.habitSearchIndex = habitSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.completionHistoryService = completionHistoryService;
     }
 
     @GetMapping
@@ -55,6 +79,42 @@ public class HabitController {
         return ResponseEntity.ok(habits);
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<List<Habit>> searchHabits(@RequestParam("q") String query) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        logger.debug("Searching habits for user: {} with query: {}", username, query);
+
+        return ResponseEntity.ok(habitSearchIndex.search(username, query));
+    }
+
+    @GetMapping("/history")
+    public ResponseEntity<?> getCompletionHistory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            HttpServletRequest servletRequest
+    ) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        logger.info("Getting completion history for user: {}", username);
+
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> {
+                    logger.error("User not found: {}", username);
+                    return new RuntimeException("User not found");
+                });
+
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusYears(1);
+        try {
+            return ResponseEntity.ok(completionHistoryService.history(user, start, end));
+        } catch (Exception e) {
+            logger.error("Error loading completion history: ", e);
+            ConcurrencyLimitFilter.recordFailure(servletRequest, e);
+            return ResponseEntity.status(500).body("An error occurred while loading the completion history");
+        }
+    }
+
     @PostMapping
     public ResponseEntity<?> createHabit(@RequestBody Map<String, String> request) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -78,6 +138,8 @@ public class HabitController {
         habit.setCategory(category);
         
         Habit savedHabit = habitRepository.save(habit);
+        habitSearchIndex.onHabitSaved(username, savedHabit);
+        eventPublisher.publishEvent(new HabitCreatedEvent(user));
         logger.info("Created habit: {} for user: {}", savedHabit.getName(), username);
         
         return ResponseEntity.ok(savedHabit);
@@ -95,11 +157,11 @@ public class HabitController {
                     return new RuntimeException("User not found");
                 });
 
-        Habit habit = habitRepository.findById(id)
-                .orElseThrow(() -> {
-                    logger.error("Habit not found with ID: {}", id);
-                    return new RuntimeException("Habit not found");
-                });
+        Habit habit = habitRepository.findById(id).orElse(null);
+        if (habit == null) {
+            logger.warn("Habit not found with ID: {}", id);
+            return ResponseEntity.status(404).body("Habit not found");
+        }
 
         if (!habit.getUser().getId().equals(user.getId())) {
             logger.error("User: {} is not authorized to delete habit with ID: {}", username, id);
@@ -107,13 +169,19 @@ public class HabitController {
         }
 
         habitRepository.delete(habit);
+        habitSearchIndex.onHabitDeleted(username, id);
+        eventPublisher.publishEvent(new HabitDeletedEvent(user, id));
         logger.info("Deleted habit with ID: {} for user: {}", id, username);
         
         return ResponseEntity.ok("Habit deleted successfully");
     }
 
     @PatchMapping("/{id}/toggle")
-    public ResponseEntity<?> toggleHabitCompletion(@PathVariable Long id, @RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> toggleHabitCompletion(
+            @PathVariable Long id,
+            @RequestBody Map<String, Object> request,
+            HttpServletRequest servletRequest
+    ) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null) {
             logger.error("No authentication found in security context");
@@ -131,11 +199,11 @@ public class HabitController {
                         return new RuntimeException("User not found");
                     });
 
-            Habit habit = habitRepository.findById(id)
-                    .orElseThrow(() -> {
-                        logger.error("Habit not found with ID: {}", id);
-                        return new RuntimeException("Habit not found");
-                    });
+            Habit habit = habitRepository.findById(id).orElse(null);
+            if (habit == null) {
+                logger.warn("Habit not found with ID: {}", id);
+                return ResponseEntity.status(404).body("Habit not found");
+            }
 
             if (!habit.getUser().getId().equals(user.getId())) {
                 logger.error("User: {} is not authorized to update habit with ID: {}", username, id);
@@ -148,6 +216,8 @@ public class HabitController {
                 return ResponseEntity.badRequest().body("Completed status is required");
             }
 
+            boolean wasCompleted = habit.isCompleted();
+            LocalDateTime previousCompletedAt = habit.getCompletedAt();
             habit.setCompleted(completed);
             
           
@@ -168,12 +238,25 @@ public class HabitController {
             }
 
             Habit updatedHabit = habitRepository.save(habit);
+            habitSearchIndex.onHabitSaved(username, updatedHabit);
+            // Events fire only when a completion is counted or taken back, so checking a habit on and
+            // off repeatedly never counts more than once per day.
+            if (completed && !wasCompleted) {
+                if (completionHistoryService.record(user, id, updatedHabit.getCompletedAt())) {
+                    eventPublisher.publishEvent(new HabitCompletedEvent(user, id, updatedHabit.getCompletedAt()));
+                }
+            } else if (!completed && wasCompleted && previousCompletedAt != null) {
+                if (completionHistoryService.undo(user, id, previousCompletedAt)) {
+                    eventPublisher.publishEvent(new HabitUncompletedEvent(user, id));
+                }
+            }
             logger.info("Updated completion status for habit with ID: {} to: {} for user: {}", 
                 id, completed, username);
             
             return ResponseEntity.ok(updatedHabit);
         } catch (Exception e) {
             logger.error("Error toggling habit completion: ", e);
+            ConcurrencyLimitFilter.recordFailure(servletRequest, e);
             return ResponseEntity.status(500).body("An error occurred while updating the habit");
         }
     }
@@ -190,11 +273,11 @@ public class HabitController {
                     return new RuntimeException("User not found");
                 });
 
-        Habit habit = habitRepository.findById(id)
-                .orElseThrow(() -> {
-                    logger.error("Habit not found with ID: {}", id);
-                    return new RuntimeException("Habit not found");
-                });
+        Habit habit = habitRepository.findById(id).orElse(null);
+        if (habit == null) {
+            logger.warn("Habit not found with ID: {}", id);
+            return ResponseEntity.status(404).body("Habit not found");
+        }
 
         if (!habit.getUser().getId().equals(user.getId())) {
             logger.error("User: {} is not authorized to update habit with ID: {}", username, id);
@@ -230,6 +313,7 @@ public class HabitController {
         }
 
         Habit updatedHabit = habitRepository.save(habit);
+        habitSearchIndex.onHabitSaved(username, updatedHabit);
         logger.info("Updated habit with ID: {} for user: {}", id, username);
         
         return ResponseEntity.ok(updatedHabit);
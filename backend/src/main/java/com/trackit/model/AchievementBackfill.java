@@ -0,0 +1,35 @@
+package com.trackit.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "achievement_backfills")
+public class AchievementBackfill {
+    @Id
+    @Column(name = "achievement_id")
+    private String achievementId;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (completedAt == null) {
+            completedAt = LocalDateTime.now();
+        }
+    }
+}
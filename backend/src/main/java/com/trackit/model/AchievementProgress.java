@@ -0,0 +1,87 @@
+package com.trackit.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.trackit.shard.ShardedId;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "achievement_progress")
+public class AchievementProgress {
+    @Id
+    @ShardedId
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false, unique = true)
+    private User user;
+
+    @Column(name = "habits_created", nullable = false)
+    private long habitsCreated;
+
+    @Column(name = "completions", nullable = false)
+    private long completions;
+
+    @Column(name = "current_streak", nullable = false)
+    private long currentStreak;
+
+    @Column(name = "longest_streak", nullable = false)
+    private long longestStreak;
+
+    @Column(name = "last_completion_date")
+    private LocalDate lastCompletionDate;
+
+    public AchievementProgress(User user) {
+        this.user = user;
+    }
+
+    public void recordHabitCreated() {
+        habitsCreated++;
+    }
+
+    public void removeHabit() {
+        habitsCreated = Math.max(0, habitsCreated - 1);
+    }
+
+    // Streaks only move forward; taking a completion back leaves them until the next recount.
+    public void removeCompletion() {
+        completions = Math.max(0, completions - 1);
+    }
+
+    public void recordCompletion(LocalDate date) {
+        completions++;
+        if (lastCompletionDate == null || date.isAfter(lastCompletionDate.plusDays(1))) {
+            currentStreak = 1;
+        } else if (date.equals(lastCompletionDate.plusDays(1))) {
+            currentStreak++;
+        }
+        if (lastCompletionDate == null || date.isAfter(lastCompletionDate)) {
+            lastCompletionDate = date;
+        }
+        longestStreak = Math.max(longestStreak, currentStreak);
+    }
+
+    // Rebuilds every counter from scratch; completionDates holds one date per counted completion.
+    public void recount(long habits, List<LocalDate> completionDates) {
+        habitsCreated = habits;
+        completions = 0;
+        currentStreak = 0;
+        longestStreak = 0;
+        lastCompletionDate = null;
+        completionDates.stream().sorted().forEach(this::recordCompletion);
+    }
+}
@@ -0,0 +1,48 @@
+package com.trackit.model;
+
+import java.time.LocalDateTime;
+
+import com.trackit.shard.ShardedId;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "habit_completions", indexes = {
+        @Index(name = "idx_habit_completions_user_time", columnList = "user_id, completed_at"),
+        @Index(name = "idx_habit_completions_time", columnList = "completed_at")
+})
+public class HabitCompletion {
+    @Id
+    @ShardedId
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // Kept as a plain id so history outlives deleted habits.
+    @Column(name = "habit_id", nullable = false)
+    private Long habitId;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+
+    public HabitCompletion(User user, Long habitId, LocalDateTime completedAt) {
+        this.user = user;
+        this.habitId = habitId;
+        this.completedAt = completedAt;
+    }
+}
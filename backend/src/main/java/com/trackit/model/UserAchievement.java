@@ -0,0 +1,50 @@
+package com.trackit.model;
+
+import java.time.LocalDateTime;
+
+import com.trackit.shard.ShardedId;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "user_achievements",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_achievements", columnNames = {"user_id", "achievement_id"}))
+public class UserAchievement {
+    @Id
+    @ShardedId
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "achievement_id", nullable = false)
+    private String achievementId;
+
+    @Column(name = "unlocked_at", nullable = false)
+    private LocalDateTime unlockedAt;
+
+    public UserAchievement(User user, String achievementId) {
+        this.user = user;
+        this.achievementId = achievementId;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        unlockedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,44 @@
+package com.trackit.ratelimit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "trackit.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    private Duration idleEviction = Duration.ofMinutes(5);
+
+    private Route defaultRoute = new Route("default", null, 120, Duration.ofMinutes(1));
+
+    private List<Route> routes = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Route {
+        private String name;
+        // Exact request path, or a prefix ending in /**
+        private String path;
+        private int capacity;
+        private Duration period;
+
+        public Route() {
+        }
+
+        public Route(String name, String path, int capacity, Duration period) {
+            this.name = name;
+            this.path = path;
+            this.capacity = capacity;
+            this.period = period;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.trackit.ratelimit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Token buckets in their GCRA form: each key stores only the theoretical arrival time of its
+// next request, so admitting a request is a single CAS on an AtomicLong. ConcurrentHashMap
+// stripes the keys across bins, and a key whose bucket has refilled carries no state worth keeping.
+// Eviction tombstones a bucket with a CAS before removing it, so a request that raced the sweep
+// either lands in the bucket first and keeps it, or sees the tombstone and starts a fresh bucket.
+@Component
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimiter {
+
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    private final RateLimitProperties properties;
+    private final Limit defaultLimit;
+    private final Map<String, Limit> exactLimits = new HashMap<>();
+    private final List<Map.Entry<String, Limit>> prefixLimits = new ArrayList<>();
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.properties = properties;
+        this.nanoTime = nanoTime;
+        this.defaultLimit = new Limit(properties.getDefaultRoute(), meterRegistry);
+        for (RateLimitProperties.Route route : properties.getRoutes()) {
+            if (route.getPath() == null) {
+                throw new IllegalStateException("Rate limit route " + route.getName() + " needs a path");
+            }
+            Limit limit = new Limit(route, meterRegistry);
+            if (route.getPath().endsWith("/**")) {
+                prefixLimits.add(Map.entry(route.getPath().substring(0, route.getPath().length() - 3), limit));
+            } else {
+                exactLimits.put(route.getPath(), limit);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Limit limitFor(String path) {
+        Limit limit = exactLimits.get(path);
+        if (limit != null) {
+            return limit;
+        }
+        // A /** route covers its base path and everything below it, but not siblings sharing a prefix.
+        for (Map.Entry<String, Limit> prefix : prefixLimits) {
+            String base = prefix.getKey();
+            if (path.startsWith(base) && (path.length() == base.length() || path.charAt(base.length()) == '/')) {
+                return prefix.getValue();
+            }
+        }
+        return defaultLimit;
+    }
+
+    // Returns 0 when the request is admitted, otherwise the nanoseconds until it would be.
+    public long tryAcquire(Limit limit, String key) {
+        String bucketKey = limit.name + '|' + key;
+        AtomicLong arrival = buckets.get(bucketKey);
+        long now = nanoTime.getAsLong();
+        if (arrival == null) {
+            arrival = buckets.computeIfAbsent(bucketKey, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long current = arrival.get();
+            if (current == EVICTED) {
+                buckets.remove(bucketKey, arrival);
+                arrival = buckets.computeIfAbsent(bucketKey, k -> new AtomicLong(now));
+                continue;
+            }
+            long next = Math.max(current, now) + limit.intervalNanos;
+            long wait = next - now - limit.periodNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trackit.rate-limit.sweep-interval-ms:60000}")
+    public void evictIdleKeys() {
+        long idleBefore = nanoTime.getAsLong() - properties.getIdleEviction().toNanos();
+        for (Map.Entry<String, AtomicLong> bucket : buckets.entrySet()) {
+            AtomicLong arrival = bucket.getValue();
+            long current = arrival.get();
+            if (current != EVICTED && current - idleBefore < 0 && arrival.compareAndSet(current, EVICTED)) {
+                buckets.remove(bucket.getKey(), arrival);
+            }
+        }
+    }
+
+    int trackedKeys() {
+        return buckets.size();
+    }
+
+    public static final class Limit {
+        private final String name;
+        private final long intervalNanos;
+        private final long periodNanos;
+        private final Counter rejectedUsers;
+        private final Counter rejectedAddresses;
+
+        private Limit(RateLimitProperties.Route route, MeterRegistry meterRegistry) {
+            if (route.getCapacity() <= 0 || route.getPeriod() == null
+                    || route.getPeriod().toNanos() < route.getCapacity()) {
+                throw new IllegalStateException("Rate limit route " + route.getName()
+                        + " needs a capacity above 0 and a period of at least one nanosecond per request");
+            }
+            this.name = route.getName();
+            this.periodNanos = route.getPeriod().toNanos();
+            this.intervalNanos = periodNanos / route.getCapacity();
+            this.rejectedUsers = Counter.builder("trackit.ratelimit.rejected")
+                    .tag("route", route.getName())
+                    .tag("key", "user")
+                    .register(meterRegistry);
+            this.rejectedAddresses = Counter.builder("trackit.ratelimit.rejected")
+                    .tag("route", route.getName())
+                    .tag("key", "ip")
+                    .register(meterRegistry);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        void recordRejection(boolean user) {
+            (user ? rejectedUsers : rejectedAddresses).increment();
+        }
+    }
+}
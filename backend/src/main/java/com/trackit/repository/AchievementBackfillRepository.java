@@ -0,0 +1,8 @@
+package com.trackit.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.trackit.model.AchievementBackfill;
+
+public interface AchievementBackfillRepository extends JpaRepository<AchievementBackfill, String> {
+}
@@ -0,0 +1,16 @@
+package com.trackit.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import com.trackit.model.AchievementProgress;
+import com.trackit.model.User;
+
+import jakarta.persistence.LockModeType;
+
+public interface AchievementProgressRepository extends JpaRepository<AchievementProgress, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<AchievementProgress> findByUser(User user);
+}
@@ -0,0 +1,27 @@
+package com.trackit.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.trackit.model.HabitCompletion;
+import com.trackit.model.User;
+
+public interface HabitCompletionRepository extends JpaRepository<HabitCompletion, Long> {
+    List<HabitCompletion> findByUserAndCompletedAtBetween(User user, LocalDateTime from, LocalDateTime to);
+    List<HabitCompletion> findByCompletedAtBefore(LocalDateTime cutoff, Pageable pageable);
+    boolean existsByUserAndHabitIdAndCompletedAtBetween(User user, Long habitId, LocalDateTime from, LocalDateTime to);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM HabitCompletion c WHERE c.user = :user AND c.habitId = :habitId AND c.completedAt BETWEEN :from AND :to")
+    int deleteByUserAndHabitIdAndCompletedAtBetween(
+            @Param("user") User user, @Param("habitId") Long habitId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,12 @@
+package com.trackit.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.trackit.model.User;
+import com.trackit.model.UserAchievement;
+
+public interface UserAchievementRepository extends JpaRepository<UserAchievement, Long> {
+    List<UserAchievement> findByUser(User user);
+}
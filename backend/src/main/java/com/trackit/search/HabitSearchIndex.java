@@ -0,0 +1,179 @@
+package com.trackit.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.trackit.model.Habit;
+import com.trackit.model.User;
+import com.trackit.repository.HabitRepository;
+import com.trackit.repository.UserRepository;
+
+// Indexes only see writes made through this instance, so each one is rebuilt from the database once
+// it is older than the max age; that bounds how long changes made through other instances stay invisible.
+@Component
+public class HabitSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(HabitSearchIndex.class);
+
+    private final HabitRepository habitRepository;
+    private final UserRepository userRepository;
+    private final Map<String, UserHabitIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<String, PendingBuild> builds = new ConcurrentHashMap<>();
+
+    @Value("${trackit.search.max-habits:200000}")
+    private long maxIndexedHabits;
+
+    @Value("${trackit.search.idle-timeout-ms:1800000}")
+    private long idleTimeoutMs;
+
+    @Value("${trackit.search.max-results:50}")
+    private int maxResults;
+
+    @Value("${trackit.search.max-age-ms:60000}")
+    private long maxAgeMs;
+
+    public HabitSearchIndex(HabitRepository habitRepository, UserRepository userRepository) {
+        this.habitRepository = habitRepository;
+        this.userRepository = userRepository;
+    }
+
+    public List<Habit> search(String username, String query) {
+        UserHabitIndex index = indexes.get(username);
+        if (index == null || System.currentTimeMillis() - index.builtAt() > maxAgeMs) {
+            index = build(username);
+            evictIfOverBudget(username);
+        }
+        return index.search(query, maxResults);
+    }
+
+    public void onHabitSaved(String username, Habit habit) {
+        apply(username, index -> index.put(habit));
+    }
+
+    public void onHabitDeleted(String username, Long habitId) {
+        apply(username, index -> index.remove(habitId));
+    }
+
+    // A change that lands while the index is being loaded is recorded and replayed on top of
+    // the loaded rows, since the load may have read the table before that change committed.
+    private void apply(String username, Consumer<UserHabitIndex> change) {
+        PendingBuild pending = builds.get(username);
+        if (pending != null && pending.record(change)) {
+            return;
+        }
+        UserHabitIndex index = indexes.get(username);
+        if (index != null) {
+            change.accept(index);
+        }
+    }
+
+    private UserHabitIndex build(String username) {
+        PendingBuild pending = new PendingBuild();
+        PendingBuild running = builds.putIfAbsent(username, pending);
+        if (running != null) {
+            return running.await();
+        }
+
+        try {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> {
+                        logger.error("User not found: {}", username);
+                        return new RuntimeException("User not found");
+                    });
+
+            UserHabitIndex index = new UserHabitIndex();
+            habitRepository.findByUser(user).forEach(index::put);
+            pending.publish(index, () -> indexes.put(username, index));
+            logger.info("Built search index with {} habits for user: {}", index.size(), username);
+            return index;
+        } catch (RuntimeException e) {
+            pending.fail(e);
+            throw e;
+        } finally {
+            builds.remove(username, pending);
+        }
+    }
+
+    // Expired indexes go too; the next search would rebuild them anyway.
+    @Scheduled(fixedDelayString = "${trackit.search.sweep-interval-ms:60000}")
+    public void evictIdleIndexes() {
+        long now = System.currentTimeMillis();
+        indexes.values().removeIf(index -> now - index.lastAccess() > idleTimeoutMs || now - index.builtAt() > maxAgeMs);
+    }
+
+    int indexedUsers() {
+        return indexes.size();
+    }
+
+    private void evictIfOverBudget(String currentUsername) {
+        long total = indexes.values().stream().mapToLong(UserHabitIndex::size).sum();
+        if (total <= maxIndexedHabits) {
+            return;
+        }
+
+        List<Map.Entry<String, Long>> candidates = new ArrayList<>();
+        indexes.forEach((username, index) -> candidates.add(Map.entry(username, index.lastAccess())));
+        candidates.sort(Map.Entry.comparingByValue());
+        for (Map.Entry<String, Long> candidate : candidates) {
+            if (total <= maxIndexedHabits) {
+                break;
+            }
+            if (candidate.getKey().equals(currentUsername)) {
+                continue;
+            }
+            UserHabitIndex evicted = indexes.remove(candidate.getKey());
+            if (evicted != null) {
+                total -= evicted.size();
+                logger.debug("Evicted search index for user: {}", candidate.getKey());
+            }
+        }
+    }
+
+    private static final class PendingBuild {
+        private final List<Consumer<UserHabitIndex>> changes = new ArrayList<>();
+        private final CompletableFuture<UserHabitIndex> result = new CompletableFuture<>();
+        private boolean closed;
+
+        synchronized boolean record(Consumer<UserHabitIndex> change) {
+            if (closed) {
+                return false;
+            }
+            changes.add(change);
+            return true;
+        }
+
+        // Replay and publish under the same lock as record, so every change is either
+        // replayed here or applied by the caller to the already published index.
+        synchronized void publish(UserHabitIndex index, Runnable publisher) {
+            changes.forEach(change -> change.accept(index));
+            changes.clear();
+            publisher.run();
+            closed = true;
+            result.complete(index);
+        }
+
+        synchronized void fail(RuntimeException e) {
+            closed = true;
+            result.completeExceptionally(e);
+        }
+
+        UserHabitIndex await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+    }
+}
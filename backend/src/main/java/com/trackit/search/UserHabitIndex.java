@@ -0,0 +1,198 @@
+package com.trackit.search;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.trackit.model.Habit;
+
+// Every trie node holds the ids of all habits with a word starting at that prefix,
+// so typeahead is one walk down the trie; trigram postings cover mid-word matches.
+class UserHabitIndex {
+
+    private static final int MAX_PREFIX_LENGTH = 24;
+
+    private final Map<Long, Habit> habits = new HashMap<>();
+    private final Map<Long, String> texts = new HashMap<>();
+    private final Map<Long, Set<String>> tokens = new HashMap<>();
+    private final TrieNode root = new TrieNode();
+    private final Map<String, Set<Long>> trigrams = new HashMap<>();
+    private final long builtAt = System.currentTimeMillis();
+    private volatile long lastAccess = builtAt;
+
+    synchronized void put(Habit habit) {
+        if (habit.getId() == null) {
+            return;
+        }
+        remove(habit.getId());
+
+        String text = normalize(String.join(" ",
+                habit.getName() != null ? habit.getName() : "",
+                habit.getNote() != null ? habit.getNote() : "",
+                habit.getCategory() != null ? habit.getCategory() : ""));
+        Set<String> habitTokens = tokenize(text);
+
+        habits.put(habit.getId(), habit);
+        texts.put(habit.getId(), text);
+        tokens.put(habit.getId(), habitTokens);
+
+        for (String token : habitTokens) {
+            TrieNode node = root;
+            for (int i = 0; i < Math.min(token.length(), MAX_PREFIX_LENGTH); i++) {
+                node = node.children.computeIfAbsent(token.charAt(i), c -> new TrieNode());
+                node.ids.add(habit.getId());
+            }
+            for (String trigram : trigrams(token)) {
+                trigrams.computeIfAbsent(trigram, t -> new HashSet<>()).add(habit.getId());
+            }
+        }
+    }
+
+    synchronized void remove(Long habitId) {
+        Set<String> habitTokens = tokens.remove(habitId);
+        if (habitTokens == null) {
+            return;
+        }
+        habits.remove(habitId);
+        texts.remove(habitId);
+
+        for (String token : habitTokens) {
+            removeFromTrie(root, token, 0, habitId);
+            for (String trigram : trigrams(token)) {
+                Set<Long> postings = trigrams.get(trigram);
+                if (postings != null && postings.remove(habitId) && postings.isEmpty()) {
+                    trigrams.remove(trigram);
+                }
+            }
+        }
+    }
+
+    synchronized List<Habit> search(String query, int limit) {
+        lastAccess = System.currentTimeMillis();
+
+        Set<String> queryTokens = tokenize(normalize(query));
+        if (queryTokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> result = null;
+        for (String token : queryTokens) {
+            Set<Long> matches = matches(token);
+            if (result == null) {
+                result = matches;
+            } else {
+                result.retainAll(matches);
+            }
+            if (result.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        return result.stream()
+                .map(habits::get)
+                .sorted(Comparator.comparing(Habit::getCreatedAt,
+                        Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder())))
+                .limit(limit)
+                .toList();
+    }
+
+    synchronized long size() {
+        return habits.size();
+    }
+
+    long lastAccess() {
+        return lastAccess;
+    }
+
+    long builtAt() {
+        return builtAt;
+    }
+
+    private Set<Long> matches(String token) {
+        Set<Long> matches = new HashSet<>();
+
+        TrieNode node = root;
+        for (int i = 0; i < Math.min(token.length(), MAX_PREFIX_LENGTH) && node != null; i++) {
+            node = node.children.get(token.charAt(i));
+        }
+        if (node != null) {
+            for (Long id : node.ids) {
+                if (token.length() <= MAX_PREFIX_LENGTH || texts.get(id).contains(token)) {
+                    matches.add(id);
+                }
+            }
+        }
+
+        if (token.length() >= 3) {
+            Set<Long> candidates = null;
+            for (String trigram : trigrams(token)) {
+                Set<Long> postings = trigrams.getOrDefault(trigram, Collections.emptySet());
+                if (candidates == null) {
+                    candidates = new HashSet<>(postings);
+                } else {
+                    candidates.retainAll(postings);
+                }
+                if (candidates.isEmpty()) {
+                    break;
+                }
+            }
+            for (Long id : candidates) {
+                if (texts.get(id).contains(token)) {
+                    matches.add(id);
+                }
+            }
+        }
+
+        return matches;
+    }
+
+    private void removeFromTrie(TrieNode node, String token, int depth, Long habitId) {
+        if (depth == Math.min(token.length(), MAX_PREFIX_LENGTH)) {
+            return;
+        }
+        TrieNode child = node.children.get(token.charAt(depth));
+        if (child == null) {
+            return;
+        }
+        child.ids.remove(habitId);
+        if (child.ids.isEmpty()) {
+            node.children.remove(token.charAt(depth));
+        } else {
+            removeFromTrie(child, token, depth + 1, habitId);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT).trim();
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String token : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> trigrams(String token) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            result.add(token.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private static final class TrieNode {
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private final Set<Long> ids = new HashSet<>();
+    }
+}
@@ -0,0 +1,8 @@
+package com.trackit.shard;
+
+public record BucketAssignment(int bucket, int shard, Integer movingTo, long version) {
+
+    public boolean moving() {
+        return movingTo != null;
+    }
+}
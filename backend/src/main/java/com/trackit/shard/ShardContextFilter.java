@@ -0,0 +1,66 @@
+package com.trackit.shard;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.trackit.concurrency.ConcurrencyLimitFilter;
+import com.trackit.security.JwtUtil;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public class ShardContextFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardContextFilter.class);
+    private final JwtUtil jwtUtil;
+    private final ShardDirectory shardDirectory;
+
+    public ShardContextFilter(JwtUtil jwtUtil, ShardDirectory shardDirectory) {
+        this.jwtUtil = jwtUtil;
+        this.shardDirectory = shardDirectory;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        try {
+            String username = extractUsername(request);
+            if (username != null) {
+                BucketAssignment assignment = shardDirectory.assignment(username);
+                if (assignment.moving()) {
+                    logger.info("Rejecting request for user: {} while moving between shards", username);
+                    request.setAttribute(ConcurrencyLimitFilter.NOT_SAMPLED_ATTRIBUTE, true);
+                    response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    response.setHeader("Retry-After", "1");
+                    return;
+                }
+                ShardContext.set(assignment.shard());
+            }
+            filterChain.doFilter(request, response);
+        } finally {
+            ShardContext.clear();
+        }
+    }
+
+    // Token validation is left to JwtAuthenticationFilter; an unreadable token just gets no shard.
+    private String extractUsername(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            return jwtUtil.extractUsername(authHeader.substring(7));
+        } catch (Exception e) {
+            logger.debug("Could not resolve shard from token: {}", e.getMessage());
+            return null;
+        }
+    }
+}
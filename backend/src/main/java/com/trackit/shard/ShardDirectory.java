@@ -0,0 +1,186 @@
+package com.trackit.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+// Users hash into a fixed set of buckets and the directory shard maps each bucket to the shard
+// holding its users. Every instance caches assignments for at most the cache TTL, and a move
+// waits longer than that before copying, so no instance keeps writing to the source shard.
+public class ShardDirectory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardDirectory.class);
+
+    private static final RowMapper<BucketAssignment> ASSIGNMENT_MAPPER = (rs, rowNum) -> new BucketAssignment(
+            rs.getInt("bucket"),
+            rs.getInt("shard"),
+            (Integer) rs.getObject("moving_to", Integer.class),
+            rs.getLong("version"));
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final int directoryShard;
+    private final int shardCount;
+    private final long cacheTtlMs;
+    private final int bucketCount;
+    private final Map<Integer, CachedAssignment> cache = new ConcurrentHashMap<>();
+
+    public ShardDirectory(DataSource directoryDataSource, ShardingProperties properties, int shardCount) {
+        this.dataSource = directoryDataSource;
+        this.jdbcTemplate = new JdbcTemplate(directoryDataSource);
+        this.directoryShard = properties.getDirectoryShard();
+        this.shardCount = shardCount;
+        this.cacheTtlMs = properties.getDirectoryCacheTtlMs();
+        this.bucketCount = initializeBuckets(properties.getBucketCount());
+        registerUnshardedUsers();
+    }
+
+    public int bucketOf(String username) {
+        return Math.floorMod(username.toLowerCase(Locale.ROOT).hashCode(), bucketCount);
+    }
+
+    public BucketAssignment assignment(String username) {
+        return assignment(bucketOf(username));
+    }
+
+    public BucketAssignment assignment(int bucket) {
+        long now = System.currentTimeMillis();
+        CachedAssignment cached = cache.get(bucket);
+        if (cached != null && now - cached.loadedAt() < cacheTtlMs) {
+            return cached.assignment();
+        }
+
+        BucketAssignment assignment = jdbcTemplate.queryForObject(
+                "SELECT bucket, shard, moving_to, version FROM shard_buckets WHERE bucket = ?",
+                ASSIGNMENT_MAPPER, bucket);
+        // Moving buckets are re-read on every request so they come back as soon as the move ends.
+        if (assignment.moving()) {
+            cache.remove(bucket);
+        } else {
+            cache.put(bucket, new CachedAssignment(assignment, now));
+        }
+        return assignment;
+    }
+
+    public List<BucketAssignment> assignments() {
+        return jdbcTemplate.query(
+                "SELECT bucket, shard, moving_to, version FROM shard_buckets ORDER BY bucket", ASSIGNMENT_MAPPER);
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    // Cluster-wide rows, such as job leases, live next to the directory.
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public int bucketCount() {
+        return bucketCount;
+    }
+
+    // Reserving the name first makes username and email unique across all shards.
+    public void reserve(String username, String email, int bucket) {
+        jdbcTemplate.update("INSERT INTO shard_users (username, email, bucket) VALUES (?, ?, ?)",
+                username, email, bucket);
+    }
+
+    public void release(String username) {
+        jdbcTemplate.update("DELETE FROM shard_users WHERE username = ?", username);
+    }
+
+    public boolean usernameTaken(String username) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM shard_users WHERE username = ?", Integer.class, username) > 0;
+    }
+
+    public boolean emailTaken(String email) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM shard_users WHERE email = ?", Integer.class, email) > 0;
+    }
+
+    public List<String> usernames(int bucket) {
+        return jdbcTemplate.queryForList("SELECT username FROM shard_users WHERE bucket = ?", String.class, bucket);
+    }
+
+    // Claims the bucket for a move; fails if another rebalancer changed it since it was read.
+    public boolean beginMove(BucketAssignment assignment, int targetShard) {
+        int updated = jdbcTemplate.update(
+                "UPDATE shard_buckets SET moving_to = ?, version = version + 1 WHERE bucket = ? AND version = ?",
+                targetShard, assignment.bucket(), assignment.version());
+        cache.remove(assignment.bucket());
+        return updated == 1;
+    }
+
+    public void finishMove(int bucket, int targetShard) {
+        jdbcTemplate.update(
+                "UPDATE shard_buckets SET shard = ?, moving_to = NULL, version = version + 1 WHERE bucket = ?",
+                targetShard, bucket);
+        cache.remove(bucket);
+    }
+
+    public void abortMove(int bucket) {
+        jdbcTemplate.update(
+                "UPDATE shard_buckets SET moving_to = NULL, version = version + 1 WHERE bucket = ?", bucket);
+        cache.remove(bucket);
+    }
+
+    private int initializeBuckets(int configuredCount) {
+        int existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM shard_buckets", Integer.class);
+        if (existing == 0) {
+            // Users from before sharding was enabled live on the directory shard, so every bucket
+            // starts there and the rebalancer spreads them out; a fresh install starts spread.
+            boolean unshardedUsers = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class) > 0;
+            List<Object[]> rows = new ArrayList<>();
+            for (int bucket = 0; bucket < configuredCount; bucket++) {
+                rows.add(new Object[] {bucket, unshardedUsers ? directoryShard : bucket % shardCount});
+            }
+            try {
+                jdbcTemplate.batchUpdate("INSERT INTO shard_buckets (bucket, shard, version) VALUES (?, ?, 0)", rows);
+                logger.info("Created {} shard buckets across {} shards", configuredCount, unshardedUsers ? 1 : shardCount);
+            } catch (DuplicateKeyException e) {
+                logger.info("Shard buckets were created by another instance");
+            }
+            existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM shard_buckets", Integer.class);
+        }
+
+        if (existing != configuredCount) {
+            logger.warn("Keeping {} existing shard buckets instead of the configured {}", existing, configuredCount);
+        }
+        int unknown = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM shard_buckets WHERE shard >= ? OR moving_to >= ?",
+                Integer.class, shardCount, shardCount);
+        if (unknown > 0) {
+            throw new IllegalStateException(unknown + " shard buckets are assigned to shards that are not configured");
+        }
+        return existing;
+    }
+
+    private void registerUnshardedUsers() {
+        List<Object[]> rows = new ArrayList<>();
+        jdbcTemplate.query(
+                "SELECT u.username, u.email FROM users u "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM shard_users d WHERE d.username = u.username)",
+                rs -> {
+                    String username = rs.getString("username");
+                    rows.add(new Object[] {username, rs.getString("email"), bucketOf(username)});
+                });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO shard_users (username, email, bucket) VALUES (?, ?, ?)", rows);
+            logger.info("Registered {} existing users on directory shard {}", rows.size(), directoryShard);
+        }
+    }
+
+    private record CachedAssignment(BucketAssignment assignment, long loadedAt) {
+    }
+}
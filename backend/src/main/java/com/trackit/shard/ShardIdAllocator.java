@@ -0,0 +1,81 @@
+package com.trackit.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+// Hands out ids in blocks per shard and sequence. Blocks are claimed on a small pool of its own,
+// so an insert never waits for a connection held by request threads, and the id_sequences row is
+// only locked for the claim itself rather than for the inserting transaction. Ids are handed out
+// above the stored value, which is the last id of the newest block.
+public class ShardIdAllocator implements AutoCloseable {
+
+    private final List<DataSource> pools;
+    private final List<TransactionTemplate> transactions = new ArrayList<>();
+    private final int defaultShard;
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public ShardIdAllocator(List<DataSource> pools, int defaultShard, int blockSize) {
+        this.pools = List.copyOf(pools);
+        this.defaultShard = defaultShard;
+        this.blockSize = blockSize;
+        for (DataSource pool : pools) {
+            transactions.add(new TransactionTemplate(new DataSourceTransactionManager(pool)));
+        }
+    }
+
+    public long next(String sequence) {
+        Integer current = ShardContext.current();
+        int shard = current != null ? current : defaultShard;
+        Block block = blocks.computeIfAbsent(shard + "|" + sequence, key -> new Block());
+        synchronized (block) {
+            if (block.next >= block.limit) {
+                long last = claim(shard, sequence);
+                block.next = last - blockSize + 1;
+                block.limit = last + 1;
+            }
+            return block.next++;
+        }
+    }
+
+    private long claim(int shard, String sequence) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(pools.get(shard));
+        return transactions.get(shard).execute(status -> {
+            int updated = jdbcTemplate.update(
+                    "UPDATE id_sequences SET next_val = next_val + ? WHERE sequence_name = ?", blockSize, sequence);
+            if (updated != 1) {
+                throw new IllegalStateException("Shard " + shard + " has no id sequence " + sequence);
+            }
+            long last = jdbcTemplate.queryForObject(
+                    "SELECT next_val FROM id_sequences WHERE sequence_name = ?", Long.class, sequence);
+            if (last >= (shard + 1) * ShardIdRanges.RANGE_SIZE) {
+                throw new IllegalStateException("Shard " + shard + " has used up its id range for " + sequence);
+            }
+            return last;
+        });
+    }
+
+    @Override
+    public void close() {
+        for (DataSource pool : pools) {
+            if (pool instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+
+    private static final class Block {
+        private long next;
+        private long limit;
+    }
+}
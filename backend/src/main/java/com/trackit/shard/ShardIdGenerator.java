@@ -0,0 +1,43 @@
+package com.trackit.shard;
+
+import java.lang.reflect.Member;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.id.IdentityGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+// An identity column unless ShardingConfig registers an allocator, in which case ids are assigned
+// before the insert from the current shard's range.
+public class ShardIdGenerator extends IdentityGenerator implements BeforeExecutionGenerator {
+
+    public static final String ALLOCATOR_SETTING = "trackit.sharding.id-allocator";
+
+    private final transient ShardIdAllocator allocator;
+    private final String sequence;
+
+    public ShardIdGenerator(ShardedId config, Member member, CustomIdGeneratorCreationContext context) {
+        this.allocator = (ShardIdAllocator) context.getServiceRegistry()
+                .requireService(ConfigurationService.class)
+                .getSettings()
+                .get(ALLOCATOR_SETTING);
+        this.sequence = context.getRootClass().getTable().getName();
+    }
+
+    @Override
+    public boolean generatedOnExecution() {
+        return allocator == null;
+    }
+
+    @Override
+    public Object generate(
+            SharedSessionContractImplementor session,
+            Object owner,
+            Object currentValue,
+            EventType eventType
+    ) {
+        return allocator.next(sequence);
+    }
+}
@@ -0,0 +1,50 @@
+package com.trackit.shard;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Each shard allocates ids from its own range in id_sequences, so a user's rows keep their ids
+// when their bucket moves to another shard. Shard 0 keeps the range starting at 1 for existing
+// data. Rows inserted while sharding was off took AUTO_INCREMENT ids without advancing the
+// counters, so every counter is raised past the highest id in its range on any shard.
+public final class ShardIdRanges {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardIdRanges.class);
+
+    public static final long RANGE_SIZE = 1L << 40;
+
+    static final List<String> SEQUENCES =
+            List.of("users", "habits", "achievement_progress", "user_achievements", "habit_completions");
+
+    private ShardIdRanges() {
+    }
+
+    public static void reserve(ShardRoutingDataSource routingDataSource) {
+        for (int shard = 0; shard < routingDataSource.shardCount(); shard++) {
+            long firstId = shard * RANGE_SIZE;
+            JdbcTemplate counters = new JdbcTemplate(routingDataSource.shard(shard));
+            for (String sequence : SEQUENCES) {
+                long last = firstId;
+                for (int holder = 0; holder < routingDataSource.shardCount(); holder++) {
+                    Long highest = new JdbcTemplate(routingDataSource.shard(holder)).queryForObject(
+                            "SELECT MAX(id) FROM " + sequence + " WHERE id >= ? AND id < ?",
+                            Long.class, firstId, firstId + RANGE_SIZE);
+                    if (highest != null) {
+                        last = Math.max(last, highest);
+                    }
+                }
+                int updated = counters.update(
+                        "UPDATE id_sequences SET next_val = ? WHERE sequence_name = ? AND next_val < ?",
+                        last, sequence, last);
+                if (updated > 0) {
+                    logger.info("Shard {} allocates {} ids after {}", shard, sequence, last);
+                }
+            }
+        }
+    }
+}
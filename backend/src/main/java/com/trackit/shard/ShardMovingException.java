@@ -0,0 +1,8 @@
+package com.trackit.shard;
+
+public class ShardMovingException extends RuntimeException {
+
+    public ShardMovingException(String username) {
+        super("User is being moved between shards: " + username);
+    }
+}
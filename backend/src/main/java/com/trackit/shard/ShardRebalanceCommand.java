@@ -0,0 +1,51 @@
+package com.trackit.shard;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Runs the rebalancer from the command line against the configured shards and exits:
+//   java -jar trackit-backend.jar --spring.main.web-application-type=none rebalance-shards [--dry-run]
+// Serving instances pick up the moves through the shard directory, so they keep running meanwhile.
+public class ShardRebalanceCommand implements ApplicationRunner {
+
+    static final String COMMAND = "rebalance-shards";
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalanceCommand.class);
+
+    private final ShardRebalancer rebalancer;
+    private final ConfigurableApplicationContext context;
+
+    public ShardRebalanceCommand(ShardRebalancer rebalancer, ConfigurableApplicationContext context) {
+        this.rebalancer = rebalancer;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.getNonOptionArgs().contains(COMMAND)) {
+            return;
+        }
+
+        int exitCode = 0;
+        try {
+            if (args.containsOption("dry-run")) {
+                Map<Integer, Integer> plan = rebalancer.plan();
+                plan.forEach((bucket, shard) -> logger.info("Would move bucket {} to shard {}", bucket, shard));
+                logger.info("Rebalance would move {} buckets", plan.size());
+            } else {
+                rebalancer.rebalance();
+            }
+        } catch (Exception e) {
+            logger.error("Shard rebalance failed: ", e);
+            exitCode = 1;
+        }
+        int status = exitCode;
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+}
@@ -0,0 +1,238 @@
+package com.trackit.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class ShardRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    // Tables holding per-user rows keyed by user_id, in insert order.
+    static final List<String> USER_TABLES = List.of("habits", "achievement_progress", "user_achievements", "habit_completions");
+
+    private final ShardRoutingDataSource routingDataSource;
+    private final ShardDirectory shardDirectory;
+    private final ShardingProperties properties;
+
+    public ShardRebalancer(
+            ShardRoutingDataSource routingDataSource,
+            ShardDirectory shardDirectory,
+            ShardingProperties properties
+    ) {
+        this.routingDataSource = routingDataSource;
+        this.shardDirectory = shardDirectory;
+        this.properties = properties;
+    }
+
+    // Shards end up with bucket counts that differ by at most one. Only buckets over a shard's
+    // share are moved, so adding a shard to N moves about 1/(N+1) of the buckets.
+    public Map<Integer, Integer> plan() {
+        List<BucketAssignment> assignments = shardDirectory.assignments();
+        int shardCount = routingDataSource.shardCount();
+        int[] share = new int[shardCount];
+        int[] load = new int[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            share[shard] = assignments.size() / shardCount + (shard < assignments.size() % shardCount ? 1 : 0);
+        }
+
+        // Moves left unfinished by an earlier run are resumed first.
+        Map<Integer, Integer> moves = new LinkedHashMap<>();
+        for (BucketAssignment assignment : assignments) {
+            if (assignment.moving()) {
+                moves.put(assignment.bucket(), assignment.movingTo());
+                load[assignment.movingTo()]++;
+            } else {
+                load[assignment.shard()]++;
+            }
+        }
+
+        List<Integer> surplus = new ArrayList<>();
+        for (BucketAssignment assignment : assignments) {
+            if (!assignment.moving() && load[assignment.shard()] > share[assignment.shard()]) {
+                surplus.add(assignment.bucket());
+                load[assignment.shard()]--;
+            }
+        }
+        int target = 0;
+        for (Integer bucket : surplus) {
+            while (load[target] >= share[target]) {
+                target++;
+            }
+            moves.put(bucket, target);
+            load[target]++;
+        }
+        return moves;
+    }
+
+    public int rebalance() {
+        List<Map.Entry<Integer, Integer>> moves = new ArrayList<>(plan().entrySet());
+        logger.info("Rebalancing {} shard buckets", moves.size());
+
+        int moved = 0;
+        for (int start = 0; start < moves.size(); start += properties.getBucketsPerBatch()) {
+            Map<Integer, Integer> batch = new LinkedHashMap<>();
+            moves.subList(start, Math.min(start + properties.getBucketsPerBatch(), moves.size()))
+                    .forEach(move -> batch.put(move.getKey(), move.getValue()));
+            moved += moveBuckets(batch);
+        }
+        logger.info("Rebalance finished, moved {} buckets", moved);
+        return moved;
+    }
+
+    public boolean moveBucket(int bucket, int targetShard) {
+        return moveBuckets(Map.of(bucket, targetShard)) == 1;
+    }
+
+    // Moves buckets in one batch: all of them are marked as moving, one drain covers the whole
+    // batch, then each bucket's users are copied in chunks, reassigned and removed from the source.
+    public int moveBuckets(Map<Integer, Integer> targets) {
+        Map<Integer, BucketAssignment> current = new LinkedHashMap<>();
+        shardDirectory.assignments().forEach(assignment -> current.put(assignment.bucket(), assignment));
+
+        List<BucketAssignment> claimed = new ArrayList<>();
+        targets.forEach((bucket, targetShard) -> {
+            BucketAssignment assignment = current.get(bucket);
+            if (assignment == null || targetShard < 0 || targetShard >= routingDataSource.shardCount()) {
+                throw new IllegalArgumentException("Cannot move bucket " + bucket + " to shard " + targetShard);
+            }
+            if (assignment.moving() && assignment.movingTo() != targetShard) {
+                logger.warn("Bucket {} is already moving to shard {}", bucket, assignment.movingTo());
+            } else if (!assignment.moving() && assignment.shard() == targetShard) {
+                logger.debug("Bucket {} is already on shard {}", bucket, targetShard);
+            } else if (shardDirectory.beginMove(assignment, targetShard)) {
+                claimed.add(new BucketAssignment(bucket, assignment.shard(), targetShard, assignment.version() + 1));
+            } else {
+                logger.warn("Bucket {} was changed by another rebalancer, skipping it", bucket);
+            }
+        });
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        // Every instance re-reads a bucket once its cached entry expires; after that, and after
+        // requests that were already routed have finished, nothing writes to the source shard.
+        try {
+            Thread.sleep(properties.getDirectoryCacheTtlMs() + properties.getMigrationDrainMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            claimed.forEach(assignment -> shardDirectory.abortMove(assignment.bucket()));
+            throw new IllegalStateException("Interrupted while draining shard buckets", e);
+        }
+
+        int moved = 0;
+        for (BucketAssignment assignment : claimed) {
+            if (moveClaimed(assignment)) {
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private boolean moveClaimed(BucketAssignment assignment) {
+        int bucket = assignment.bucket();
+        DataSource source = routingDataSource.shard(assignment.shard());
+        DataSource target = routingDataSource.shard(assignment.movingTo());
+        List<List<String>> chunks = chunks(shardDirectory.usernames(bucket));
+
+        try {
+            for (List<String> usernames : chunks) {
+                copyUsers(source, target, usernames);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to copy bucket {} to shard {}, leaving it on shard {}",
+                    bucket, assignment.movingTo(), assignment.shard(), e);
+            try {
+                for (List<String> usernames : chunks) {
+                    deleteUsers(target, userIds(target, usernames));
+                }
+            } catch (Exception cleanup) {
+                logger.error("Failed to remove partial copy of bucket {} from shard {}",
+                        bucket, assignment.movingTo(), cleanup);
+            }
+            shardDirectory.abortMove(bucket);
+            return false;
+        }
+
+        shardDirectory.finishMove(bucket, assignment.movingTo());
+        try {
+            for (List<String> usernames : chunks) {
+                deleteUsers(source, userIds(source, usernames));
+            }
+        } catch (Exception e) {
+            logger.error("Moved bucket {} but failed to remove its rows from shard {}", bucket, assignment.shard(), e);
+        }
+        logger.info("Moved bucket {} with {} users from shard {} to shard {}",
+                bucket, chunks.stream().mapToInt(List::size).sum(), assignment.shard(), assignment.movingTo());
+        return true;
+    }
+
+    private void copyUsers(DataSource source, DataSource target, List<String> usernames) {
+        NamedParameterJdbcTemplate sourceJdbc = new NamedParameterJdbcTemplate(source);
+        List<Map<String, Object>> users = sourceJdbc.queryForList(
+                "SELECT * FROM users WHERE username IN (:usernames)", Map.of("usernames", usernames));
+        if (users.isEmpty()) {
+            return;
+        }
+        List<Object> ids = users.stream().map(user -> user.get("id")).toList();
+
+        new TransactionTemplate(new DataSourceTransactionManager(target)).executeWithoutResult(status -> {
+            // A resumed move may already have copied part of this chunk.
+            deleteRows(new NamedParameterJdbcTemplate(target), ids);
+            new SimpleJdbcInsert(target).withTableName("users").executeBatch(toArray(users));
+            for (String table : USER_TABLES) {
+                List<Map<String, Object>> rows = sourceJdbc.queryForList(
+                        "SELECT * FROM " + table + " WHERE user_id IN (:ids)", Map.of("ids", ids));
+                if (!rows.isEmpty()) {
+                    new SimpleJdbcInsert(target).withTableName(table).executeBatch(toArray(rows));
+                }
+            }
+        });
+    }
+
+    private List<Object> userIds(DataSource dataSource, List<String> usernames) {
+        return new NamedParameterJdbcTemplate(dataSource).queryForList(
+                "SELECT id FROM users WHERE username IN (:usernames)", Map.of("usernames", usernames), Object.class);
+    }
+
+    private void deleteUsers(DataSource dataSource, List<Object> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource))
+                .executeWithoutResult(status -> deleteRows(new NamedParameterJdbcTemplate(dataSource), ids));
+    }
+
+    private static void deleteRows(NamedParameterJdbcTemplate jdbc, List<Object> ids) {
+        List<String> tables = new ArrayList<>(USER_TABLES);
+        Collections.reverse(tables);
+        for (String table : tables) {
+            jdbc.update("DELETE FROM " + table + " WHERE user_id IN (:ids)", Map.of("ids", ids));
+        }
+        jdbc.update("DELETE FROM users WHERE id IN (:ids)", Map.of("ids", ids));
+    }
+
+    private List<List<String>> chunks(List<String> usernames) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int start = 0; start < usernames.size(); start += properties.getMigrationBatchSize()) {
+            chunks.add(usernames.subList(start, Math.min(start + properties.getMigrationBatchSize(), usernames.size())));
+        }
+        return chunks;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object>[] toArray(List<Map<String, Object>> rows) {
+        return rows.toArray(new Map[0]);
+    }
+}
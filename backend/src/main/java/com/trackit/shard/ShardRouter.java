@@ -0,0 +1,65 @@
+package com.trackit.shard;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ShardRouter {
+
+    private final ObjectProvider<ShardDirectory> directoryProvider;
+
+    public ShardRouter(ObjectProvider<ShardDirectory> directoryProvider) {
+        this.directoryProvider = directoryProvider;
+    }
+
+    // Reads stay on the source shard while a user's bucket is moving; it keeps the rows until the move ends.
+    public void bindExisting(String username) {
+        ShardDirectory directory = directoryProvider.getIfAvailable();
+        if (directory != null && username != null) {
+            ShardContext.set(directory.assignment(username).shard());
+        }
+    }
+
+    // Claims the username and email in the directory, then binds the shard the user will live on.
+    public void reserve(String username, String email) {
+        ShardDirectory directory = directoryProvider.getIfAvailable();
+        if (directory == null) {
+            return;
+        }
+        BucketAssignment assignment = directory.assignment(username);
+        if (assignment.moving()) {
+            throw new ShardMovingException(username);
+        }
+        directory.reserve(username, email, assignment.bucket());
+        ShardContext.set(assignment.shard());
+    }
+
+    public void release(String username) {
+        ShardDirectory directory = directoryProvider.getIfAvailable();
+        if (directory != null) {
+            directory.release(username);
+        }
+    }
+
+    // Without sharding these are always false and the users table is the only record.
+    public boolean usernameTaken(String username) {
+        ShardDirectory directory = directoryProvider.getIfAvailable();
+        return directory != null && directory.usernameTaken(username);
+    }
+
+    public boolean emailTaken(String email) {
+        ShardDirectory directory = directoryProvider.getIfAvailable();
+        return directory != null && directory.emailTaken(email);
+    }
+
+    public void forEachShard(Runnable task) {
+        ShardDirectory directory = directoryProvider.getIfAvailable();
+        if (directory == null) {
+            task.run();
+            return;
+        }
+        for (int shard = 0; shard < directory.shardCount(); shard++) {
+            ShardContext.run(shard, task);
+        }
+    }
+}
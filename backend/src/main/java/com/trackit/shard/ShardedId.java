@@ -0,0 +1,18 @@
+package com.trackit.shard;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+// Ids come from AUTO_INCREMENT without sharding; with sharding each shard hands them out from its
+// own range, so rows keep their ids when their bucket moves.
+@IdGeneratorType(ShardIdGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface ShardedId {
+}
@@ -0,0 +1,106 @@
+package com.trackit.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.trackit.security.JwtUtil;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "trackit.sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(ShardingProperties properties) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("Sharding is enabled but no trackit.sharding.shards are configured");
+        }
+
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardingProperties.Shard shard = properties.getShards().get(i);
+            shards.add(pool(shard, "shard-" + i, shard.getMaxPoolSize()));
+        }
+        return new ShardRoutingDataSource(shards, properties.getDirectoryShard());
+    }
+
+    @Bean
+    public ShardIdAllocator shardIdAllocator(ShardingProperties properties) {
+        List<DataSource> pools = new ArrayList<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            pools.add(pool(properties.getShards().get(i), "shard-" + i + "-ids", properties.getIdPoolSize()));
+        }
+        return new ShardIdAllocator(pools, properties.getDirectoryShard(), properties.getIdBlockSize());
+    }
+
+    // Switches the entities' ShardIdGenerator from AUTO_INCREMENT to per-shard ranges.
+    @Bean
+    public HibernatePropertiesCustomizer shardIdGeneratorCustomizer(ShardIdAllocator shardIdAllocator) {
+        return hibernateProperties -> hibernateProperties.put(ShardIdGenerator.ALLOCATOR_SETTING, shardIdAllocator);
+    }
+
+    // Created after the migrations, which add the directory tables and each shard's id range.
+    @Bean
+    @DependsOnDatabaseInitialization
+    public ShardDirectory shardDirectory(ShardRoutingDataSource dataSource, ShardingProperties properties) {
+        return new ShardDirectory(dataSource.shard(properties.getDirectoryShard()), properties, dataSource.shardCount());
+    }
+
+    @Bean
+    public ShardRebalancer shardRebalancer(
+            ShardRoutingDataSource dataSource,
+            ShardDirectory shardDirectory,
+            ShardingProperties properties
+    ) {
+        return new ShardRebalancer(dataSource, shardDirectory, properties);
+    }
+
+    @Bean
+    public ShardRebalanceCommand shardRebalanceCommand(
+            ShardRebalancer shardRebalancer,
+            ConfigurableApplicationContext context
+    ) {
+        return new ShardRebalanceCommand(shardRebalancer, context);
+    }
+
+    // Runs ahead of the security chain so user lookups during authentication hit the right shard.
+    @Bean
+    public FilterRegistrationBean<ShardContextFilter> shardContextFilter(
+            JwtUtil jwtUtil,
+            ShardDirectory shardDirectory
+    ) {
+        FilterRegistrationBean<ShardContextFilter> registration =
+                new FilterRegistrationBean<>(new ShardContextFilter(jwtUtil, shardDirectory));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+
+    private static HikariDataSource pool(ShardingProperties.Shard shard, String name, int maxPoolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(shard.getUrl());
+        config.setUsername(shard.getUsername());
+        config.setPassword(shard.getPassword());
+        if (shard.getDriverClassName() != null) {
+            config.setDriverClassName(shard.getDriverClassName());
+        }
+        config.setMaximumPoolSize(maxPoolSize);
+        return new HikariDataSource(config);
+    }
+}
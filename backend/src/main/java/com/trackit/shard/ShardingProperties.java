@@ -0,0 +1,46 @@
+package com.trackit.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "trackit.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    private int directoryShard = 0;
+
+    private int bucketCount = 1024;
+
+    private long directoryCacheTtlMs = 5000;
+
+    private long migrationDrainMs = 2000;
+
+    private int migrationBatchSize = 500;
+
+    private int bucketsPerBatch = 16;
+
+    // Ids each shard claims per round trip, and the connections reserved for claiming them.
+    private int idBlockSize = 100;
+
+    private int idPoolSize = 2;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maxPoolSize = 10;
+    }
+}
@@ -0,0 +1,24 @@
+CREATE TABLE users (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE habits (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    note VARCHAR(255),
+    reminder_time VARCHAR(255),
+    created_at DATETIME(6),
+    completed BIT NOT NULL,
+    completed_at DATETIME(6),
+    recurrence VARCHAR(255) NOT NULL,
+    category VARCHAR(255) NOT NULL,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_habits_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
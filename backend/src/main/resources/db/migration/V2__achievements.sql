@@ -0,0 +1,28 @@
+CREATE TABLE achievement_progress (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    habits_created BIGINT NOT NULL,
+    completions BIGINT NOT NULL,
+    current_streak BIGINT NOT NULL,
+    longest_streak BIGINT NOT NULL,
+    last_completion_date DATE,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_achievement_progress_user UNIQUE (user_id),
+    CONSTRAINT fk_achievement_progress_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE user_achievements (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    achievement_id VARCHAR(255) NOT NULL,
+    unlocked_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_achievements UNIQUE (user_id, achievement_id),
+    CONSTRAINT fk_user_achievements_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE achievement_backfills (
+    achievement_id VARCHAR(255) NOT NULL,
+    completed_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (achievement_id)
+);
@@ -0,0 +1,11 @@
+CREATE TABLE habit_completions (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    habit_id BIGINT NOT NULL,
+    completed_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_habit_completions_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE INDEX idx_habit_completions_user_time ON habit_completions (user_id, completed_at);
+CREATE INDEX idx_habit_completions_time ON habit_completions (completed_at);
@@ -0,0 +1,31 @@
+CREATE TABLE shard_buckets (
+    bucket INT NOT NULL,
+    shard INT NOT NULL,
+    moving_to INT,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (bucket)
+);
+
+CREATE TABLE shard_users (
+    username VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    bucket INT NOT NULL,
+    PRIMARY KEY (username),
+    CONSTRAINT uk_shard_users_email UNIQUE (email)
+);
+
+CREATE INDEX idx_shard_users_bucket ON shard_users (bucket);
+
+-- Ids come from these counters rather than AUTO_INCREMENT, which jumps past any id inserted
+-- explicitly and would hand out ids from another shard's range after a bucket move.
+CREATE TABLE id_sequences (
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val BIGINT,
+    PRIMARY KEY (sequence_name)
+);
+
+INSERT INTO id_sequences (sequence_name, next_val) SELECT 'users', COALESCE(MAX(id), 0) + 1 FROM users;
+INSERT INTO id_sequences (sequence_name, next_val) SELECT 'habits', COALESCE(MAX(id), 0) + 1 FROM habits;
+INSERT INTO id_sequences (sequence_name, next_val) SELECT 'achievement_progress', COALESCE(MAX(id), 0) + 1 FROM achievement_progress;
+INSERT INTO id_sequences (sequence_name, next_val) SELECT 'user_achievements', COALESCE(MAX(id), 0) + 1 FROM user_achievements;
+INSERT INTO id_sequences (sequence_name, next_val) SELECT 'habit_completions', COALESCE(MAX(id), 0) + 1 FROM habit_completions;
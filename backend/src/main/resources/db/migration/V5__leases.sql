@@ -0,0 +1,10 @@
+-- One row per cluster-wide job. An instance runs the job only while it holds the row's lease;
+-- with sharding, the directory shard's copy is the one that counts.
+CREATE TABLE leases (
+    name VARCHAR(255) NOT NULL,
+    owner VARCHAR(255),
+    expires_at DATETIME(6),
+    PRIMARY KEY (name)
+);
+
+INSERT INTO leases (name, owner, expires_at) VALUES ('completion-archiver', NULL, NULL);
@@ -0,0 +1,252 @@
+package com.trackit.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trackit.shard.ShardDirectory;
+import com.trackit.shard.ShardRebalancer;
+import com.trackit.shard.ShardRoutingDataSource;
+
+// Fills every shard with two years of completions, archives them and compares the hot table size
+// and history latency before and after, then checks history survives a bucket move.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("sharding-test")
+class CompletionArchiveIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompletionArchiveIntegrationTest.class);
+
+    private static final int USERS_PER_SHARD = 8;
+    private static final int DAYS = 730;
+    private static final int COMPLETIONS_PER_DAY = 2;
+    private static final int QUERY_ROUNDS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShardRoutingDataSource routingDataSource;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    @Autowired
+    private CompletionArchiver completionArchiver;
+
+    @Autowired
+    private ArchiveProperties archiveProperties;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectProvider<ShardDirectory> directoryProvider;
+
+    @Test
+    void onlyOneInstanceHoldsTheArchiveLease() throws Exception {
+        JdbcTemplate directory = new JdbcTemplate(shardDirectory.dataSource());
+        ArchiveLease first = new ArchiveLease(dataSource, directoryProvider, 300);
+        ArchiveLease second = new ArchiveLease(dataSource, directoryProvider, 300);
+        try {
+            directory.update("UPDATE leases SET owner = NULL, expires_at = NULL WHERE name = ?", ArchiveLease.NAME);
+
+            assertThat(first.tryAcquire()).isTrue();
+            assertThat(second.tryAcquire()).isFalse();
+            assertThat(first.tryAcquire()).isTrue();
+            assertThat(directory.queryForObject("SELECT owner FROM leases WHERE name = ?", String.class, ArchiveLease.NAME))
+                    .isEqualTo(first.owner());
+
+            // A holder that stops renewing hands over once its lease expires.
+            Thread.sleep(400);
+            assertThat(second.tryAcquire()).isTrue();
+            assertThat(first.tryAcquire()).isFalse();
+        } finally {
+            directory.update("UPDATE leases SET owner = NULL, expires_at = NULL WHERE name = ?", ArchiveLease.NAME);
+        }
+    }
+
+    @Test
+    void archivingRefusesDirectoriesThatAreNotShared() {
+        ArchiveProperties missing = new ArchiveProperties();
+        missing.setEnabled(true);
+        assertThatThrownBy(() -> new ColdSegmentStore(missing)).isInstanceOf(IllegalStateException.class);
+
+        ArchiveProperties relative = new ArchiveProperties();
+        relative.setDirectory("data/cold-completions");
+        assertThatThrownBy(() -> new ColdSegmentStore(relative)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void archivingShrinksTheHotTableAndKeepsEveryShardsHistorySeparate() throws Exception {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        Map<String, String> tokens = new LinkedHashMap<>();
+        for (int shard = 0; shard < routingDataSource.shardCount(); shard++) {
+            for (int i = 0; i < USERS_PER_SHARD; i++) {
+                String username = usernameOnShard("archived-" + shard + "-", shard, i);
+                tokens.put(username, registerAndLogin(username));
+                insertCompletions(shard, username, now);
+            }
+        }
+
+        long[] hotBefore = hotRows();
+        Map<String, Set<Long>> fullBefore = new LinkedHashMap<>();
+        for (Map.Entry<String, String> user : tokens.entrySet()) {
+            fullBefore.put(user.getKey(), historyIds(user.getValue(), now.minusDays(DAYS + 1), now));
+        }
+        long[] yearBefore = latencies(tokens.values(), now.minusYears(1), now);
+        long[] fullLatencyBefore = latencies(tokens.values(), now.minusDays(DAYS + 1), now);
+
+        completionArchiver.archive();
+
+        long[] hotAfter = hotRows();
+        long[] yearAfter = latencies(tokens.values(), now.minusYears(1), now);
+        long[] fullLatencyAfter = latencies(tokens.values(), now.minusDays(DAYS + 1), now);
+
+        logger.info("Hot completions per shard: before {} after {}", Arrays.toString(hotBefore), Arrays.toString(hotAfter));
+        logger.info("History latency over the last year (p50/p95 us): before {}/{} after {}/{}",
+                percentile(yearBefore, 50), percentile(yearBefore, 95), percentile(yearAfter, 50), percentile(yearAfter, 95));
+        logger.info("History latency over two years (p50/p95 us): before {}/{} after {}/{}",
+                percentile(fullLatencyBefore, 50), percentile(fullLatencyBefore, 95),
+                percentile(fullLatencyAfter, 50), percentile(fullLatencyAfter, 95));
+
+        int hotDays = archiveProperties.getHorizonDays();
+        for (int shard = 0; shard < hotBefore.length; shard++) {
+            assertThat(hotBefore[shard]).isGreaterThanOrEqualTo((long) USERS_PER_SHARD * DAYS * COMPLETIONS_PER_DAY);
+            assertThat(hotAfter[shard]).isLessThanOrEqualTo(hotBefore[shard] - (long) USERS_PER_SHARD * (DAYS - hotDays - 1) * COMPLETIONS_PER_DAY);
+        }
+        for (Map.Entry<String, String> user : tokens.entrySet()) {
+            assertThat(fullBefore.get(user.getKey())).hasSize(DAYS * COMPLETIONS_PER_DAY);
+            assertThat(historyIds(user.getValue(), now.minusDays(DAYS + 1), now)).isEqualTo(fullBefore.get(user.getKey()));
+        }
+
+        // A moved user's rows keep their ids, so their cold segments are still found from the new shard.
+        String moved = tokens.keySet().iterator().next();
+        int bucket = shardDirectory.bucketOf(moved);
+        int source = shardDirectory.assignment(bucket).shard();
+        assertThat(shardRebalancer.moveBucket(bucket, (source + 1) % routingDataSource.shardCount())).isTrue();
+        try {
+            assertThat(historyIds(tokens.get(moved), now.minusDays(DAYS + 1), now)).isEqualTo(fullBefore.get(moved));
+        } finally {
+            shardRebalancer.moveBucket(bucket, source);
+        }
+    }
+
+    private void insertCompletions(int shard, String username, LocalDateTime now) {
+        JdbcTemplate jdbc = new JdbcTemplate(routingDataSource.shard(shard));
+        long userId = jdbc.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, username);
+        int count = DAYS * COMPLETIONS_PER_DAY;
+        // Claim a block past the generator's last value so later completions keep unique ids.
+        long firstId = jdbc.queryForObject(
+                "SELECT next_val FROM id_sequences WHERE sequence_name = 'habit_completions'", Long.class) + 1;
+        jdbc.update("UPDATE id_sequences SET next_val = ? WHERE sequence_name = 'habit_completions'", firstId + count);
+
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime completedAt = now.minusDays(i / COMPLETIONS_PER_DAY + 1).plusHours(i % COMPLETIONS_PER_DAY);
+            rows.add(new Object[] {firstId + i, userId, 1L + i % COMPLETIONS_PER_DAY, Timestamp.valueOf(completedAt)});
+        }
+        jdbc.batchUpdate("INSERT INTO habit_completions (id, user_id, habit_id, completed_at) VALUES (?, ?, ?, ?)", rows);
+    }
+
+    private long[] hotRows() {
+        long[] rows = new long[routingDataSource.shardCount()];
+        for (int shard = 0; shard < rows.length; shard++) {
+            rows[shard] = new JdbcTemplate(routingDataSource.shard(shard))
+                    .queryForObject("SELECT COUNT(*) FROM habit_completions", Long.class);
+        }
+        return rows;
+    }
+
+    private long[] latencies(Iterable<String> tokens, LocalDateTime from, LocalDateTime to) throws Exception {
+        List<Long> samples = new ArrayList<>();
+        for (int round = 0; round < QUERY_ROUNDS; round++) {
+            for (String token : tokens) {
+                long start = System.nanoTime();
+                history(token, from, to);
+                samples.add((System.nanoTime() - start) / 1000);
+            }
+        }
+        return samples.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+
+    private Set<Long> historyIds(String token, LocalDateTime from, LocalDateTime to) throws Exception {
+        Set<Long> ids = new HashSet<>();
+        history(token, from, to).forEach(record -> ids.add(record.get("id").asLong()));
+        return ids;
+    }
+
+    private JsonNode history(String token, LocalDateTime from, LocalDateTime to) throws Exception {
+        String body = mockMvc.perform(get("/api/habits/history")
+                        .header("Authorization", "Bearer " + token)
+                        .param("from", from.toString())
+                        .param("to", to.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private String registerAndLogin(String username) throws Exception {
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of(
+                                "username", username, "password", "secret123", "email", username + "@example.com"))))
+                .andExpect(status().isOk());
+        String body = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("username", username, "password", "secret123"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("token").asText();
+    }
+
+    // Picks the index-th unused username that hashes onto the shard.
+    private String usernameOnShard(String prefix, int shard, int index) {
+        int found = 0;
+        for (int i = 0; ; i++) {
+            String username = prefix + i;
+            if (shardDirectory.assignment(username).shard() == shard && found++ == index) {
+                return username;
+            }
+        }
+    }
+}
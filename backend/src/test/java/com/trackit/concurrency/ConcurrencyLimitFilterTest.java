@@ -0,0 +1,136 @@
+package com.trackit.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+class ConcurrencyLimitFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void fastClientErrorsDoNotBecomeTheLatencyBaseline() throws Exception {
+        ConcurrencyLimitFilter filter = filter(EndpointClass.READ, 10);
+        for (int i = 0; i < 20; i++) {
+            send(filter, "GET", (request, response) -> ((HttpServletResponse) response).setStatus(401));
+        }
+
+        // Enough concurrent requests to keep the limiter adjusting, all equally slow.
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int client = 0; client < 8; client++) {
+                results.add(clients.submit(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        send(filter, "GET", (request, response) -> LockSupport.parkNanos(5_000_000));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            clients.shutdown();
+        }
+
+        // Measured against the 401s the 5 ms responses would look overloaded and shrink the limit.
+        assertThat(limit(EndpointClass.READ)).isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    void shardMoveRejectionsDoNotShrinkTheLimit() throws Exception {
+        ConcurrencyLimitFilter filter = filter(EndpointClass.WRITE, 20);
+        for (int i = 0; i < 10; i++) {
+            send(filter, "POST", (request, response) -> {
+                request.setAttribute(ConcurrencyLimitFilter.NOT_SAMPLED_ATTRIBUTE, true);
+                ((HttpServletResponse) response).setStatus(503);
+            });
+        }
+        assertThat(limit(EndpointClass.WRITE)).isEqualTo(20);
+
+        for (int i = 0; i < 10; i++) {
+            send(filter, "POST", (request, response) -> ((HttpServletResponse) response).setStatus(503));
+        }
+        assertThat(limit(EndpointClass.WRITE)).isLessThan(20);
+    }
+
+    @Test
+    void onlyOverloadedDependenciesShrinkTheLimit() throws Exception {
+        ConcurrencyLimitFilter filter = filter(EndpointClass.WRITE, 20);
+        for (int i = 0; i < 20; i++) {
+            assertThatThrownBy(() -> send(filter, "DELETE", (request, response) -> {
+                throw new IllegalStateException("Habit not found");
+            })).isInstanceOf(IllegalStateException.class);
+            send(filter, "POST", (request, response) -> {
+                ConcurrencyLimitFilter.recordFailure((HttpServletRequest) request,
+                        new DataIntegrityViolationException("Duplicate entry"));
+                ((HttpServletResponse) response).setStatus(500);
+            });
+            send(filter, "POST", (request, response) -> ((HttpServletResponse) response).setStatus(404));
+        }
+        assertThat(limit(EndpointClass.WRITE)).isEqualTo(20);
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> send(filter, "POST", (request, response) -> {
+                throw new CannotGetJdbcConnectionException("Failed to obtain JDBC Connection",
+                        new SQLTransientConnectionException("Connection is not available, request timed out"));
+            })).isInstanceOf(CannotGetJdbcConnectionException.class);
+        }
+        int afterEscaped = limit(EndpointClass.WRITE);
+        assertThat(afterEscaped).isLessThan(20);
+
+        // Controllers that answer the failure themselves still report the cause.
+        for (int i = 0; i < 5; i++) {
+            send(filter, "POST", (request, response) -> {
+                ConcurrencyLimitFilter.recordFailure((HttpServletRequest) request, new QueryTimeoutException("timeout"));
+                ((HttpServletResponse) response).setStatus(500);
+            });
+        }
+        assertThat(limit(EndpointClass.WRITE)).isLessThan(afterEscaped);
+    }
+
+    private ConcurrencyLimitFilter filter(EndpointClass endpointClass, int initialLimit) {
+        ConcurrencyLimitProperties.Limits limits = new ConcurrencyLimitProperties.Limits();
+        limits.setInitial(initialLimit);
+        limits.setMin(1);
+        limits.setMax(50);
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.getLimits().put(endpointClass, limits);
+        return new ConcurrencyLimitFilter(properties, meterRegistry);
+    }
+
+    private static void send(ConcurrencyLimitFilter filter, String method, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/habits");
+        request.setServletPath("/api/habits");
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+    }
+
+    private int limit(EndpointClass endpointClass) {
+        return (int) meterRegistry.get("trackit.concurrency.limit")
+                .tag("class", endpointClass.name().toLowerCase(Locale.ROOT))
+                .gauge()
+                .value();
+    }
+}
@@ -0,0 +1,125 @@
+package com.trackit.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Closed-loop simulation in virtual time: a fixed population of clients sends requests to a
+// database that serves a fixed number of queries in parallel, then the database slows down.
+// Responses slower than the client timeout are wasted work, so goodput is what clients received
+// in time. Without a limit every client queues at the database and nearly all responses arrive
+// too late; with the limiter the queue stays short and the database's capacity is still used.
+class ConcurrencyLimitSimulationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitSimulationTest.class);
+
+    private static final int CLIENTS = 100;
+    private static final int DATABASE_CONNECTIONS = 10;
+    private static final long NORMAL_QUERY_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+    private static final long SLOW_QUERY_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long CLIENT_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long RETRY_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOWDOWN_AT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long END_NANOS = TimeUnit.SECONDS.toNanos(40);
+
+    @Test
+    void limiterKeepsGoodputWhenTheDatabaseSlowsDown() {
+        Result unlimited = simulate(null);
+        Result limited = simulate(limiter());
+
+        logger.info("Before slowdown goodput: unlimited {}/s, limited {}/s",
+                unlimited.goodputBefore(), limited.goodputBefore());
+        logger.info("During slowdown goodput: unlimited {}/s, limited {}/s, database capacity {}/s (limit ended at {})",
+                unlimited.goodputDuring(), limited.goodputDuring(), capacity(SLOW_QUERY_NANOS), limited.finalLimit());
+
+        assertThat(limited.goodputBefore()).isGreaterThan(capacity(NORMAL_QUERY_NANOS) * 8 / 10);
+        assertThat(unlimited.goodputDuring()).isLessThan(capacity(SLOW_QUERY_NANOS) / 10);
+        assertThat(limited.goodputDuring()).isGreaterThan(capacity(SLOW_QUERY_NANOS) * 8 / 10);
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter() {
+        ConcurrencyLimitProperties.Limits limits = new ConcurrencyLimitProperties.Limits();
+        limits.setInitial(40);
+        limits.setMin(8);
+        limits.setMax(150);
+        return new AdaptiveConcurrencyLimiter(limits, new ConcurrencyLimitProperties());
+    }
+
+    private static long capacity(long queryNanos) {
+        return DATABASE_CONNECTIONS * TimeUnit.SECONDS.toNanos(1) / queryNanos;
+    }
+
+    private static Result simulate(AdaptiveConcurrencyLimiter limiter) {
+        PriorityQueue<Event> events = new PriorityQueue<>(Comparator.comparingLong(Event::at));
+        Queue<Long> waiting = new ArrayDeque<>();
+        int busyConnections = 0;
+        long goodBefore = 0;
+        long goodDuring = 0;
+
+        for (int client = 0; client < CLIENTS; client++) {
+            events.add(new Event(client * 1000L, true, 0));
+        }
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            long now = event.at();
+            if (now > END_NANOS) {
+                break;
+            }
+
+            if (event.arrival()) {
+                if (limiter != null && !limiter.tryAcquire()) {
+                    events.add(new Event(now + RETRY_DELAY_NANOS, true, 0));
+                } else if (busyConnections < DATABASE_CONNECTIONS) {
+                    busyConnections++;
+                    events.add(new Event(now + queryNanos(now), false, now));
+                } else {
+                    waiting.add(now);
+                }
+                continue;
+            }
+
+            long rtt = now - event.sentAt();
+            if (limiter != null) {
+                limiter.release(rtt, false);
+            }
+            if (rtt <= CLIENT_TIMEOUT_NANOS) {
+                if (now < SLOWDOWN_AT_NANOS) {
+                    goodBefore++;
+                } else {
+                    goodDuring++;
+                }
+            }
+            events.add(new Event(now, true, 0));
+
+            Long next = waiting.poll();
+            if (next == null) {
+                busyConnections--;
+            } else {
+                events.add(new Event(now + queryNanos(now), false, next));
+            }
+        }
+
+        return new Result(
+                goodBefore * TimeUnit.SECONDS.toNanos(1) / SLOWDOWN_AT_NANOS,
+                goodDuring * TimeUnit.SECONDS.toNanos(1) / (END_NANOS - SLOWDOWN_AT_NANOS),
+                limiter == null ? 0 : limiter.getLimit());
+    }
+
+    private static long queryNanos(long now) {
+        return now < SLOWDOWN_AT_NANOS ? NORMAL_QUERY_NANOS : SLOW_QUERY_NANOS;
+    }
+
+    private record Event(long at, boolean arrival, long sentAt) {
+    }
+
+    private record Result(long goodputBefore, long goodputDuring, int finalLimit) {
+    }
+}
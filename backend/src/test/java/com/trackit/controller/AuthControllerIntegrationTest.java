@@ -0,0 +1,64 @@
+package com.trackit.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("embedded-test")
+class AuthControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    // A schema that ddl-auto created before the migrations has Hibernate's generated constraint names.
+    @Test
+    void duplicatesAreReportedCorrectlyWithLegacyConstraintNames() throws Exception {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("ALTER TABLE users RENAME CONSTRAINT uk_users_username TO uk_r43af9ap4edm43mmtq01oddj6");
+        jdbc.execute("ALTER TABLE users RENAME CONSTRAINT uk_users_email TO uk_6dotkott2kjsp8vw4d0m25fb7");
+        try {
+            register("legacy", "legacy@example.com").andExpect(status().isOk());
+
+            register("legacy-other", "legacy@example.com")
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().string("Email already exists"));
+            register("legacy", "legacy-other@example.com")
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().string("Username already exists"));
+        } finally {
+            jdbc.execute("ALTER TABLE users RENAME CONSTRAINT uk_r43af9ap4edm43mmtq01oddj6 TO uk_users_username");
+            jdbc.execute("ALTER TABLE users RENAME CONSTRAINT uk_6dotkott2kjsp8vw4d0m25fb7 TO uk_users_email");
+        }
+    }
+
+    private ResultActions register(String username, String email) throws Exception {
+        return mockMvc.perform(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of(
+                        "username", username, "password", "secret123", "email", email))));
+    }
+}
@@ -0,0 +1,205 @@
+package com.trackit.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trackit.concurrency.EndpointClass;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("embedded-test")
+class HabitControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void idsComeFromAutoIncrementWithoutSharding() throws Exception {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        long counterBefore = habitCounter(jdbc);
+        String token = registerAndLogin("identity");
+
+        long first = createHabit(token, "Read").get("id").asLong();
+        long second = createHabit(token, "Write").get("id").asLong();
+
+        assertThat(second).isGreaterThan(first);
+        assertThat(second).isLessThan(1L << 40);
+        assertThat(habitCounter(jdbc)).isEqualTo(counterBefore);
+    }
+
+    // Each request keeps its connection open for the view, so an id generator that takes a second
+    // connection exhausts the two-connection pool as soon as two creates overlap.
+    @Test
+    void concurrentCreatesNeedOnlyTheirOwnConnection() throws Exception {
+        String token = registerAndLogin("concurrent");
+        ExecutorService clients = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<JsonNode>> habits = new ArrayList<>();
+            for (int i = 0; i < 24; i++) {
+                String name = "Habit " + i;
+                habits.add(clients.submit(() -> createHabit(token, name)));
+            }
+            for (Future<JsonNode> habit : habits) {
+                assertThat(habit.get().get("id").asLong()).isPositive();
+            }
+        } finally {
+            clients.shutdown();
+        }
+
+        String body = mockMvc.perform(get("/api/habits").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(objectMapper.readTree(body)).hasSize(24);
+        assertThat(progress("concurrent").get("habits_created")).isEqualTo(24L);
+    }
+
+    @Test
+    void countersChangeIncrementallyWithHabits() throws Exception {
+        String token = registerAndLogin("counters");
+        long read = createHabit(token, "Read").get("id").asLong();
+        long write = createHabit(token, "Write").get("id").asLong();
+        long run = createHabit(token, "Run").get("id").asLong();
+        deleteHabit(token, run);
+
+        toggle(token, read, true);
+        toggle(token, write, true);
+        Map<String, Object> progress = progress("counters");
+        assertThat(progress.get("habits_created")).isEqualTo(2L);
+        assertThat(progress.get("completions")).isEqualTo(2L);
+        assertThat(progress.get("current_streak")).isEqualTo(1L);
+
+        toggle(token, write, false);
+        assertThat(progress("counters").get("completions")).isEqualTo(1L);
+    }
+
+    @Test
+    void togglingAHabitRepeatedlyCountsOneCompletionPerDay() throws Exception {
+        String token = registerAndLogin("toggler");
+        long habit = createHabit(token, "Stretch").get("id").asLong();
+        for (int i = 0; i < 60; i++) {
+            toggle(token, habit, true);
+            toggle(token, habit, false);
+        }
+        toggle(token, habit, true);
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertThat(progress("toggler").get("completions")).isEqualTo(1L);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM habit_completions WHERE habit_id = ?", Long.class, habit))
+                .isEqualTo(1L);
+        assertThat(jdbc.queryForObject(
+                "SELECT COUNT(*) FROM user_achievements a JOIN users u ON a.user_id = u.id"
+                        + " WHERE u.username = 'toggler' AND a.achievement_id = 'habit-master'", Long.class))
+                .isZero();
+    }
+
+    @Test
+    void missingHabitsAreNotFoundAndDoNotShrinkTheWriteLimit() throws Exception {
+        String token = registerAndLogin("missing");
+        int limitBefore = writeLimit();
+        for (int i = 0; i < 30; i++) {
+            mockMvc.perform(delete("/api/habits/999999999").header("Authorization", "Bearer " + token))
+                    .andExpect(status().isNotFound());
+            mockMvc.perform(patch("/api/habits/999999999")
+                            .header("Authorization", "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(Map.of("name", "Ghost"))))
+                    .andExpect(status().isNotFound());
+            mockMvc.perform(patch("/api/habits/999999999/toggle")
+                            .header("Authorization", "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(Map.of("completed", true))))
+                    .andExpect(status().isNotFound());
+        }
+        assertThat(writeLimit()).isGreaterThanOrEqualTo(limitBefore);
+    }
+
+    private int writeLimit() {
+        return (int) meterRegistry.get("trackit.concurrency.limit")
+                .tag("class", EndpointClass.WRITE.name().toLowerCase(Locale.ROOT))
+                .gauge()
+                .value();
+    }
+
+    private Map<String, Object> progress(String username) {
+        return new JdbcTemplate(dataSource).queryForMap(
+                "SELECT p.habits_created, p.completions, p.current_streak FROM achievement_progress p"
+                        + " JOIN users u ON p.user_id = u.id WHERE u.username = ?", username);
+    }
+
+    private long habitCounter(JdbcTemplate jdbc) {
+        return jdbc.queryForObject("SELECT next_val FROM id_sequences WHERE sequence_name = 'habits'", Long.class);
+    }
+
+    private String registerAndLogin(String username) throws Exception {
+        mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of(
+                                "username", username, "password", "secret123", "email", username + "@example.com"))))
+                .andExpect(status().isOk());
+        String body = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("username", username, "password", "secret123"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("token").asText();
+    }
+
+    private void toggle(String token, long habit, boolean completed) throws Exception {
+        mockMvc.perform(patch("/api/habits/" + habit + "/toggle")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("completed", completed))))
+                .andExpect(status().isOk());
+    }
+
+    private void deleteHabit(String token, long habit) throws Exception {
+        mockMvc.perform(delete("/api/habits/" + habit).header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+
+    private JsonNode createHabit(String token, String name) throws Exception {
+        String body = mockMvc.perform(post("/api/habits")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", name))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
@@ -0,0 +1,152 @@
+package com.trackit.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RateLimiterTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiterTest.class);
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    @Test
+    void admitsCapacityPerPeriodAndReportsTheWait() {
+        RateLimiter limiter = limiter(clock::get, Duration.ofMinutes(5),
+                new RateLimitProperties.Route("login", "/api/auth/login", 5, Duration.ofSeconds(1)));
+        RateLimiter.Limit limit = limiter.limitFor("/api/auth/login");
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(limit, "alice")).isZero();
+        }
+        assertThat(limiter.tryAcquire(limit, "alice")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(limiter.tryAcquire(limit, "bob")).isZero();
+
+        // One request's worth of tokens comes back every period / capacity.
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(199));
+        assertThat(limiter.tryAcquire(limit, "alice")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1));
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(limiter.tryAcquire(limit, "alice")).isZero();
+        assertThat(limiter.tryAcquire(limit, "alice")).isPositive();
+
+        // A bucket refills to capacity and no further.
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(limit, "alice")).isZero();
+        }
+        assertThat(limiter.tryAcquire(limit, "alice")).isPositive();
+    }
+
+    @Test
+    void wildcardRoutesCoverTheirBasePathButNotSiblings() {
+        RateLimiter limiter = limiter(clock::get, Duration.ofMinutes(5),
+                new RateLimitProperties.Route("login", "/api/auth/login", 10, Duration.ofMinutes(1)),
+                new RateLimitProperties.Route("habits", "/api/habits/**", 300, Duration.ofMinutes(1)));
+
+        assertThat(limiter.limitFor("/api/auth/login").getName()).isEqualTo("login");
+        assertThat(limiter.limitFor("/api/auth/login/extra").getName()).isEqualTo("default");
+        assertThat(limiter.limitFor("/api/habits").getName()).isEqualTo("habits");
+        assertThat(limiter.limitFor("/api/habits/").getName()).isEqualTo("habits");
+        assertThat(limiter.limitFor("/api/habits/42/toggle").getName()).isEqualTo("habits");
+        assertThat(limiter.limitFor("/api/habitsearch").getName()).isEqualTo("default");
+        assertThat(limiter.limitFor("/api/achievements").getName()).isEqualTo("default");
+    }
+
+    @Test
+    void idleBucketsAreEvictedAndActiveOnesKept() {
+        RateLimiter limiter = limiter(clock::get, Duration.ofMinutes(5),
+                new RateLimitProperties.Route("habits", "/api/habits/**", 3, Duration.ofMinutes(1)));
+        RateLimiter.Limit limit = limiter.limitFor("/api/habits");
+
+        limiter.tryAcquire(limit, "idle");
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        limiter.tryAcquire(limit, "active");
+        limiter.evictIdleKeys();
+        assertThat(limiter.trackedKeys()).isEqualTo(1);
+
+        // The evicted key starts over with a full bucket.
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(limit, "idle")).isZero();
+        }
+        assertThat(limiter.tryAcquire(limit, "idle")).isPositive();
+    }
+
+    // A sweep that runs after a request fetched its idle bucket, but before it updates it, must not let
+    // the request in on the dropped bucket while a fresh one hands out a full burst as well. The clock
+    // is read between those two steps, so the test runs the sweep from inside it.
+    @Test
+    void evictionRacingARequestNeverAdmitsMoreThanCapacity() {
+        AtomicReference<RateLimiter> limiterRef = new AtomicReference<>();
+        AtomicBoolean sweepOnNextRead = new AtomicBoolean();
+        RateLimiter limiter = limiter(() -> {
+            if (sweepOnNextRead.compareAndSet(true, false)) {
+                limiterRef.get().evictIdleKeys();
+            }
+            return clock.get();
+        }, Duration.ofMinutes(1), new RateLimitProperties.Route("habits", "/api/habits/**", 3, Duration.ofMinutes(1)));
+        limiterRef.set(limiter);
+        RateLimiter.Limit limit = limiter.limitFor("/api/habits");
+
+        limiter.tryAcquire(limit, "alice");
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        sweepOnNextRead.set(true);
+
+        int admitted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (limiter.tryAcquire(limit, "alice") == 0) {
+                admitted++;
+            }
+        }
+        assertThat(sweepOnNextRead).isFalse();
+        assertThat(admitted).isEqualTo(3);
+    }
+
+    // The limiter runs on every request, so admitting one has to stay well under a microsecond.
+    @Test
+    void admittingARequestTakesUnderAMicrosecond() {
+        RateLimiter limiter = limiter(System::nanoTime, Duration.ofMinutes(5),
+                new RateLimitProperties.Route("habits", "/api/habits/**", 1_000_000, Duration.ofSeconds(1)));
+        String[] keys = new String[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "user-" + i;
+        }
+
+        long admitted = 0;
+        for (int i = 0; i < 500_000; i++) {
+            admitted += acquire(limiter, keys[i % keys.length]);
+        }
+        int requests = 2_000_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            admitted += acquire(limiter, keys[i % keys.length]);
+        }
+        long perRequest = (System.nanoTime() - start) / requests;
+
+        logger.info("Route lookup and admission took {} ns per request", perRequest);
+        assertThat(admitted).isPositive();
+        assertThat(perRequest).isLessThan(1000);
+    }
+
+    private static long acquire(RateLimiter limiter, String key) {
+        return limiter.tryAcquire(limiter.limitFor("/api/habits/42/toggle"), key) == 0 ? 1 : 0;
+    }
+
+    private static RateLimiter limiter(LongSupplier nanoTime, Duration idleEviction, RateLimitProperties.Route... routes) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setIdleEviction(idleEviction);
+        properties.setRoutes(List.of(routes));
+        return new RateLimiter(properties, new SimpleMeterRegistry(), nanoTime);
+    }
+}
@@ -0,0 +1,144 @@
+package com.trackit.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.trackit.model.Habit;
+import com.trackit.model.User;
+import com.trackit.repository.HabitRepository;
+import com.trackit.repository.UserRepository;
+
+class HabitSearchIndexTest {
+
+    private final HabitRepository habitRepository = mock(HabitRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final User user = new User();
+    private final List<Habit> rows = new CopyOnWriteArrayList<>();
+    private HabitSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        user.setUsername("alice");
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+        when(habitRepository.findByUser(user)).thenAnswer(invocation -> List.copyOf(rows));
+
+        searchIndex = new HabitSearchIndex(habitRepository, userRepository);
+        ReflectionTestUtils.setField(searchIndex, "maxIndexedHabits", 200_000L);
+        ReflectionTestUtils.setField(searchIndex, "idleTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(searchIndex, "maxResults", 50);
+        ReflectionTestUtils.setField(searchIndex, "maxAgeMs", 60_000L);
+    }
+
+    @Test
+    void localWritesApplyToTheIndexWithoutReloading() {
+        rows.add(habit(1L, "Morning run"));
+        assertThat(ids("run")).containsExactly(1L);
+
+        searchIndex.onHabitSaved("alice", habit(2L, "Evening run"));
+        searchIndex.onHabitSaved("alice", habit(1L, "Morning walk"));
+        searchIndex.onHabitDeleted("alice", 3L);
+
+        assertThat(ids("run")).containsExactly(2L);
+        assertThat(ids("walk")).containsExactly(1L);
+        verify(habitRepository, times(1)).findByUser(user);
+    }
+
+    // Another instance's write never reaches this index, so only the max age brings it in.
+    @Test
+    void indexesOlderThanTheMaxAgeAreRebuilt() throws Exception {
+        rows.add(habit(1L, "Morning run"));
+        assertThat(ids("run")).containsExactly(1L);
+
+        rows.add(habit(2L, "Evening run"));
+        assertThat(ids("run")).containsExactly(1L);
+
+        ReflectionTestUtils.setField(searchIndex, "maxAgeMs", 20L);
+        Thread.sleep(50);
+        assertThat(ids("run")).containsExactlyInAnyOrder(1L, 2L);
+        verify(habitRepository, times(2)).findByUser(user);
+    }
+
+    @Test
+    void sweepDropsIdleAndExpiredIndexes() throws Exception {
+        rows.add(habit(1L, "Morning run"));
+        ids("run");
+        searchIndex.evictIdleIndexes();
+        assertThat(searchIndex.indexedUsers()).isEqualTo(1);
+
+        ReflectionTestUtils.setField(searchIndex, "idleTimeoutMs", 20L);
+        Thread.sleep(50);
+        searchIndex.evictIdleIndexes();
+        assertThat(searchIndex.indexedUsers()).isZero();
+
+        ReflectionTestUtils.setField(searchIndex, "idleTimeoutMs", 60_000L);
+        ids("run");
+        ReflectionTestUtils.setField(searchIndex, "maxAgeMs", 20L);
+        Thread.sleep(50);
+        searchIndex.evictIdleIndexes();
+        assertThat(searchIndex.indexedUsers()).isZero();
+    }
+
+    // Writes that land while the rows are loading may be missing from what the load read, so they
+    // are replayed on top of it before the index is published.
+    @Test
+    void writesDuringABuildAreReplayedOntoTheNewIndex() throws Exception {
+        rows.add(habit(1L, "Morning run"));
+        rows.add(habit(2L, "Evening run"));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(habitRepository.findByUser(user)).thenAnswer(invocation -> {
+            List<Habit> snapshot = List.copyOf(rows);
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return snapshot;
+        });
+
+        ExecutorService searcher = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Habit>> firstSearch = searcher.submit(() -> searchIndex.search("alice", "run"));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            rows.add(habit(3L, "Lunch run"));
+            searchIndex.onHabitSaved("alice", habit(3L, "Lunch run"));
+            searchIndex.onHabitDeleted("alice", 2L);
+            release.countDown();
+
+            assertThat(firstSearch.get(5, TimeUnit.SECONDS)).extracting(Habit::getId).containsExactlyInAnyOrder(1L, 3L);
+        } finally {
+            searcher.shutdown();
+        }
+        assertThat(ids("run")).containsExactlyInAnyOrder(1L, 3L);
+        verify(habitRepository, times(1)).findByUser(user);
+    }
+
+    private List<Long> ids(String query) {
+        return searchIndex.search("alice", query).stream().map(Habit::getId).toList();
+    }
+
+    private Habit habit(Long id, String name) {
+        Habit habit = new Habit();
+        habit.setId(id);
+        habit.setName(name);
+        habit.setCategory("fitness");
+        habit.setCreatedAt(LocalDateTime.of(2026, 1, 1, 12, 0).plusMinutes(id));
+        habit.setUser(user);
+        return habit;
+    }
+}
@@ -0,0 +1,92 @@
+package com.trackit.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.trackit.model.Habit;
+
+class UserHabitIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Test
+    void matchesWordPrefixesAndMidWordFragments() {
+        UserHabitIndex index = new UserHabitIndex();
+        index.put(habit(1L, "Morning run", "5k around the park", "fitness", 1));
+        index.put(habit(2L, "Read books", null, "learning", 2));
+        index.put(habit(3L, "Meditation", "before breakfast", "health", 3));
+
+        assertThat(ids(index.search("med", 10))).containsExactly(3L);
+        assertThat(ids(index.search("RUN", 10))).containsExactly(1L);
+        assertThat(ids(index.search("ditat", 10))).containsExactly(3L);
+        assertThat(ids(index.search("fitness", 10))).containsExactly(1L);
+        assertThat(ids(index.search("park", 10))).containsExactly(1L);
+        // Every query word has to match.
+        assertThat(ids(index.search("morning park", 10))).containsExactly(1L);
+        assertThat(ids(index.search("morning books", 10))).isEmpty();
+        assertThat(ids(index.search("xyz", 10))).isEmpty();
+        assertThat(ids(index.search("  ", 10))).isEmpty();
+    }
+
+    @Test
+    void returnsNewestHabitsFirstUpToTheLimit() {
+        UserHabitIndex index = new UserHabitIndex();
+        for (long id = 1; id <= 5; id++) {
+            index.put(habit(id, "Drink water " + id, null, "health", id));
+        }
+
+        assertThat(ids(index.search("water", 3))).containsExactly(5L, 4L, 3L);
+    }
+
+    @Test
+    void updatesAndRemovalsDropTheOldPostings() {
+        UserHabitIndex index = new UserHabitIndex();
+        index.put(habit(1L, "Read books", null, "learning", 1));
+        index.put(habit(2L, "Read news", null, "learning", 2));
+
+        index.put(habit(1L, "Write essays", null, "learning", 1));
+        assertThat(ids(index.search("books", 10))).isEmpty();
+        assertThat(ids(index.search("read", 10))).containsExactly(2L);
+        assertThat(ids(index.search("essay", 10))).containsExactly(1L);
+
+        index.remove(2L);
+        assertThat(ids(index.search("read", 10))).isEmpty();
+        assertThat(ids(index.search("learning", 10))).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+
+        index.remove(1L);
+        index.remove(1L);
+        assertThat(ids(index.search("learning", 10))).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    // The trie stops at 24 characters, so longer words are confirmed against the habit's text.
+    @Test
+    void longWordsMatchOnlyWhenTheWholeWordMatches() {
+        UserHabitIndex index = new UserHabitIndex();
+        index.put(habit(1L, "supercalifragilisticexpialidocious", null, "fun", 1));
+        index.put(habit(2L, "supercalifragilisticexpialidocus", null, "fun", 2));
+
+        assertThat(ids(index.search("supercalifragilisticexpialidocious", 10))).containsExactly(1L);
+        assertThat(ids(index.search("supercalifragilistic", 10))).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(ids(index.search("expialidocious", 10))).containsExactly(1L);
+    }
+
+    private static List<Long> ids(List<Habit> habits) {
+        return habits.stream().map(Habit::getId).toList();
+    }
+
+    private static Habit habit(Long id, String name, String note, String category, long minutesAfterNoon) {
+        Habit habit = new Habit();
+        habit.setId(id);
+        habit.setName(name);
+        habit.setNote(note);
+        habit.setCategory(category);
+        habit.setCreatedAt(NOW.plusMinutes(minutesAfterNoon));
+        return habit;
+    }
+}
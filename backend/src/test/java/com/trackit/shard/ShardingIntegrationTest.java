@@ -0,0 +1,236 @@
+package com.trackit.shard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("sharding-test")
+class ShardingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShardRoutingDataSource routingDataSource;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    @Autowired
+    private ShardingProperties properties;
+
+    @Test
+    void registeredUsersLiveOnTheirBucketShardAndCanLogIn() throws Exception {
+        Set<Integer> shards = new HashSet<>();
+        for (int i = 0; i < 12; i++) {
+            String username = "routed" + i;
+            register(username, username + "@example.com").andExpect(status().isOk());
+            String token = login(username);
+            createHabit(token, "Read " + i);
+
+            int shard = shardDirectory.assignment(username).shard();
+            shards.add(shard);
+            assertThat(shardsHoldingUser(username)).containsExactly(shard);
+            assertThat(habitNames(token)).containsExactly("Read " + i);
+        }
+        assertThat(shards).hasSizeGreaterThan(1);
+    }
+
+    @Test
+    void emailIsUniqueAcrossShards() throws Exception {
+        String first = usernameOnShard("email-a", 1);
+        String second = usernameOnShard("email-b", 2);
+
+        register(first, "shared@example.com").andExpect(status().isOk());
+        register(second, "shared@example.com")
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Email already exists"));
+        register(first, "other@example.com")
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Username already exists"));
+
+        // The failed attempt released its reservation, so the name is still free.
+        register(second, "second@example.com").andExpect(status().isOk());
+        assertThat(shardsHoldingUser(second)).containsExactly(2);
+    }
+
+    @Test
+    void availabilityChecksEveryShard() throws Exception {
+        String registered = usernameOnShard("available-a", 1);
+        String other = usernameOnShard("available-b", 2);
+        register(registered, "available@example.com").andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/auth/availability")
+                        .param("username", other)
+                        .param("email", "available@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"username\": true, \"email\": false}"));
+        mockMvc.perform(get("/api/auth/availability").param("username", registered))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"username\": false}"));
+    }
+
+    @Test
+    void shardsAllocateIdsFromSeparateRanges() throws Exception {
+        for (int shard = 0; shard < routingDataSource.shardCount(); shard++) {
+            String username = usernameOnShard("ids", shard);
+            register(username, username + "@example.com").andExpect(status().isOk());
+            createHabit(login(username), "Stretch");
+
+            long userId = jdbc(shard).queryForObject("SELECT id FROM users WHERE username = ?", Long.class, username);
+            long habitId = jdbc(shard).queryForObject("SELECT id FROM habits WHERE user_id = ?", Long.class, userId);
+            assertThat(userId / ShardIdRanges.RANGE_SIZE).isEqualTo(shard);
+            assertThat(habitId / ShardIdRanges.RANGE_SIZE).isEqualTo(shard);
+        }
+    }
+
+    @Test
+    void rebalanceSpreadsBucketsAndKeepsUsersReachable() throws Exception {
+        Map<String, String> tokens = new HashMap<>();
+        for (int i = 0; i < 8; i++) {
+            String username = "moved" + i;
+            register(username, username + "@example.com").andExpect(status().isOk());
+            String token = login(username);
+            JsonNode habit = createHabit(token, "Walk " + i);
+            mockMvc.perform(patch("/api/habits/" + habit.get("id").asLong() + "/toggle")
+                            .header("Authorization", "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"completed\": true}"))
+                    .andExpect(status().isOk());
+            tokens.put(username, token);
+        }
+
+        // Collapse everything onto shard 0, as if shards 1 and 2 had just been added.
+        Map<Integer, Integer> consolidate = new HashMap<>();
+        shardDirectory.assignments().stream()
+                .filter(assignment -> assignment.shard() != 0)
+                .forEach(assignment -> consolidate.put(assignment.bucket(), 0));
+        shardRebalancer.moveBuckets(consolidate);
+        for (String username : tokens.keySet()) {
+            assertThat(shardsHoldingUser(username)).containsExactly(0);
+        }
+
+        Map<Integer, Integer> plan = shardRebalancer.plan();
+        assertThat(plan).hasSize(8);
+        assertThat(plan.values()).doesNotContain(0);
+        assertThat(shardRebalancer.rebalance()).isEqualTo(8);
+        assertThat(shardRebalancer.plan()).isEmpty();
+
+        int[] buckets = new int[routingDataSource.shardCount()];
+        shardDirectory.assignments().forEach(assignment -> buckets[assignment.shard()]++);
+        assertThat(buckets).containsExactly(4, 4, 4);
+
+        for (Map.Entry<String, String> user : tokens.entrySet()) {
+            String username = user.getKey();
+            int shard = shardDirectory.assignment(username).shard();
+            assertThat(shardsHoldingUser(username)).containsExactly(shard);
+            assertThat(habitNames(user.getValue())).containsExactly("Walk " + username.substring(5));
+            long userId = jdbc(shard).queryForObject("SELECT id FROM users WHERE username = ?", Long.class, username);
+            assertThat(jdbc(shard).queryForObject(
+                    "SELECT COUNT(*) FROM habit_completions WHERE user_id = ?", Integer.class, userId)).isEqualTo(1);
+            login(username);
+        }
+    }
+
+    @Test
+    void otherInstancesStopUsingCachedAssignmentsBeforeAMoveCopiesData() {
+        ShardDirectory otherInstance = new ShardDirectory(
+                routingDataSource.shard(properties.getDirectoryShard()), properties, routingDataSource.shardCount());
+        int bucket = shardDirectory.bucketOf("cached-user");
+        int source = otherInstance.assignment(bucket).shard();
+        int target = (source + 1) % routingDataSource.shardCount();
+
+        assertThat(shardRebalancer.moveBucket(bucket, target)).isTrue();
+        assertThat(otherInstance.assignment(bucket).shard()).isEqualTo(target);
+        assertThat(otherInstance.assignment(bucket).moving()).isFalse();
+    }
+
+    private ResultActions register(String username, String email) throws Exception {
+        return mockMvc.perform(post("/api/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of(
+                        "username", username, "password", "secret123", "email", email))));
+    }
+
+    private String login(String username) throws Exception {
+        String body = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("username", username, "password", "secret123"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("token").asText();
+    }
+
+    private JsonNode createHabit(String token, String name) throws Exception {
+        String body = mockMvc.perform(post("/api/habits")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", name))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private List<String> habitNames(String token) throws Exception {
+        String body = mockMvc.perform(get("/api/habits").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<String> names = new ArrayList<>();
+        objectMapper.readTree(body).forEach(habit -> names.add(habit.get("name").asText()));
+        return names;
+    }
+
+    private List<Integer> shardsHoldingUser(String username) {
+        List<Integer> shards = new ArrayList<>();
+        for (int shard = 0; shard < routingDataSource.shardCount(); shard++) {
+            if (jdbc(shard).queryForObject("SELECT COUNT(*) FROM users WHERE username = ?", Integer.class, username) > 0) {
+                shards.add(shard);
+            }
+        }
+        return shards;
+    }
+
+    private String usernameOnShard(String prefix, int shard) {
+        for (int i = 0; ; i++) {
+            String username = prefix + i;
+            if (shardDirectory.assignment(username).shard() == shard) {
+                return username;
+            }
+        }
+    }
+
+    private JdbcTemplate jdbc(int shard) {
+        return new JdbcTemplate(routingDataSource.shard(shard));
+    }
+}
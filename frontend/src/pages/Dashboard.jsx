@@ -60,36 +60,14 @@ const Dashboard = () => {
     longestStreak: 0,
   });
   const [habits, setHabits] = useState([]);
-  const [achievements, setAchievements] = useState([
-    {
-      id: 1,
-      name: 'Getting Started',
-      description: 'Created your first habit',
-      icon: <TimelineIcon />,
-      unlocked: true,
-    },
-    {
-      id: 2,
-      name: 'Consistency King',
-      description: 'Completed 7 habits in a row',
-      icon: <FireIcon />,
-      unlocked: stats.currentStreak >= 7,
-    },
-    {
-      id: 3,
-      name: 'Habit Master',
-      description: 'Completed 50 habits',
-      icon: <CheckCircleIcon />,
-      unlocked: stats.completedHabits >= 50,
-    },
-    {
-      id: 4,
-      name: 'Achievement Hunter',
-      description: 'Unlocked all achievements',
-      icon: <EmojiEventsIcon />,
-      unlocked: false,
-    },
-  ]);
+  const [achievements, setAchievements] = useState([]);
+
+  const achievementIcons = {
+    'getting-started': <TimelineIcon />,
+    'consistency-king': <FireIcon />,
+    'habit-master': <CheckCircleIcon />,
+    'achievement-hunter': <EmojiEventsIcon />,
+  };
 
   const fetchData = async () => {
     try {
@@ -109,23 +87,12 @@ const Dashboard = () => {
         longestStreak,
       });
 
-     
-      setAchievements((prev) =>
-        prev.map((achievement) => {
-          if (achievement.id === 2) {
-            return { ...achievement, unlocked: currentStreak >= 7 };
-          }
-          if (achievement.id === 3) {
-            return { ...achievement, unlocked: completedHabits >= 50 };
-          }
-          if (achievement.id === 4) {
-            return {
-              ...achievement,
-              unlocked: currentStreak >= 7 && completedHabits >= 50,
-            };
-          }
-          return achievement;
-        })
+      const achievementsResponse = await axios.get('/achievements');
+      setAchievements(
+        achievementsResponse.data.map((achievement) => ({
+          ...achievement,
+          icon: achievementIcons[achievement.id] || <EmojiEventsIcon />,
+        }))
       );
     } catch (error) {
       console.error('Failed to fetch data:', error);